@@ -0,0 +1,43 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Installs a bundle artifact holding a template and a value file in the local
+// repository of the integration tests.
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+File bundle = new File(localRepositoryPath,
+    'com/github/chitralverma/it/templates-bundle/1.0/templates-bundle-1.0.jar')
+bundle.parentFile.mkdirs()
+
+def entries = [
+    'templates/header.j2': '# {{ title }} by {{ team }}',
+    'values/common.json' : '{"team": "platform", "title": "bundle"}',
+]
+
+def zip = new ZipOutputStream(new FileOutputStream(bundle))
+try {
+  entries.each { name, content ->
+    zip.putNextEntry(new ZipEntry(name))
+    zip.write(content.getBytes('UTF-8'))
+    zip.closeEntry()
+  }
+} finally {
+  zip.close()
+}
+
+return true
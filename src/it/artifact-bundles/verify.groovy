@@ -0,0 +1,62 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Checks the output rendered from the bundle and that the bundle is extracted
+// once along with its index and hash lookup, that the templates of the bundle
+// are compiled and that malformed coordinates fail before rendering.
+
+import groovy.json.JsonSlurper
+
+def output = new File(basedir, 'target/outputs/main.txt')
+assert output.isFile(): 'main.txt was not rendered.'
+
+// Local value files take precedence over the ones of the bundle
+assert output.text.readLines()*.trim().findAll { it } ==
+    ['# local by platform', 'name: artifact-bundles']
+
+def bundles = new File(basedir, 'target/bundles')
+def extracted = bundles.listFiles().findAll {
+  it.isDirectory() && !it.name.startsWith('.')
+}
+assert extracted.size() == 1: "Expected 1 extracted bundle but found ${extracted}."
+
+def index = new JsonSlurper().parse(new File(extracted[0], '.bundle-index.json'))
+assert index as Set == ['templates/header.j2', 'values/common.json'] as Set
+
+def lookups = new File(bundles, '.lookup').listFiles()
+assert lookups != null && lookups.length == 1
+assert new JsonSlurper().parse(lookups[0]).hash == extracted[0].name
+
+def buildLog = new File(basedir, 'build.log').text
+assert buildLog.count('Extracting bundle') == 1: 'The bundle was extracted again.'
+assert buildLog.contains('Reusing bundle'): 'The extracted bundle was not reused.'
+
+// The template of the bundle is compiled, its value file is not
+assert buildLog.contains('Compiling 2 template(s).'):
+    'The templates of the bundle were not compiled.'
+def compiled = new JsonSlurper().parse(
+    new File(basedir, 'target/jinja-maven/template-index.json')).values()
+assert compiled as Set == [
+    new File(basedir, 'src/main/resources/templates/main.j2').canonicalPath,
+    'com.github.chitralverma.it:templates-bundle:1.0!/templates/header.j2',
+] as Set
+
+assert buildLog.contains("Provided dependencyArtifact 'templates-bundle-1.0' " +
+    'must be in the form groupId:artifactId[:extension[:classifier]]:version.'):
+    'Malformed bundle coordinates were not reported.'
+assert !new File(basedir, 'target/outputs/invalid.txt').exists()
+
+return true
@@ -0,0 +1,42 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Checks that the broken template is reported with its line, that files of
+// dependency directories without a template extension are not compiled and
+// that only the templates which compiled are recorded in the index.
+
+def buildLog = new File(basedir, 'build.log').text
+
+assert buildLog.contains('template(s) failed to compile'):
+    'Compile errors were not reported.'
+assert buildLog =~ /broken_if\.j2:\d+: /:
+    'The broken template was not reported with its line number.'
+assert !buildLog.contains('good.j2:') && !buildLog.contains('footer.j2:'):
+    'A valid template was reported as broken.'
+assert !buildLog.contains('data.json'):
+    'A file without a template extension was compiled.'
+
+// Nothing is rendered by the compile goal
+assert !new File(basedir, 'target/outputs').exists()
+
+def index = new File(basedir, 'target/jinja-maven/template-index.json')
+assert index.isFile(): 'The template index was not written.'
+def indexed = new groovy.json.JsonSlurper().parse(index).values()
+assert indexed.any { it.endsWith('good.j2') }
+assert indexed.any { it.endsWith('footer.j2') }
+assert !indexed.any { it.endsWith('broken_if.j2') || it.endsWith('data.json') }
+
+return true
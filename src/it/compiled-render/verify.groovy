@@ -0,0 +1,43 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Checks that the templates compiled before rendering are rendered without
+// being parsed again, that the included template is parsed once for both
+// resources and that the generate goal does not persist the template index.
+
+def buildLog = new File(basedir, 'build.log').text
+def outputs = new File(basedir, 'target/outputs')
+
+def lines = { name ->
+    new File(outputs, name).readLines().findAll { !it.trim().isEmpty() }
+}
+assert lines('first.txt') ==
+    ['generated from compiled-render', 'first: compiled-render']
+assert lines('second.txt') ==
+    ['generated from compiled-render', 'second: compiled-render']
+
+assert buildLog.contains('Compiled 3 template(s).'):
+    'The templates were not compiled before rendering.'
+
+// first.j2, second.j2 and footer.j2 are each parsed once
+def parsed = buildLog.findAll(/Parsing template \[ \w+ \]/)
+assert parsed.size() == 3: "Templates were parsed ${parsed.size()} times."
+assert parsed.unique().size() == 3
+
+assert !new File(basedir, 'target/jinja-maven/template-index.json').exists():
+    'The generate goal persisted the template index.'
+
+return true
@@ -0,0 +1,44 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Checks the rendered output of every value merge strategy. Nested objects
+// are rendered as a whole, as JSON.
+
+def render = { String name ->
+  def output = new File(basedir, "target/outputs/${name}")
+  assert output.isFile(): "${name} was not rendered."
+  output.text.readLines()*.trim()
+}
+
+// Top level keys of later files replace earlier ones as a whole
+assert render('override.txt') ==
+    ['owner: overlay', 'app: {"ports":[8080],"debug":true}']
+
+// Objects are merged recursively and arrays are concatenated
+assert render('append.txt') ==
+    ['owner: overlay', 'app: {"name":"base","ports":[80,8080],"debug":true}']
+
+// Objects are merged recursively and arrays are replaced
+assert render('replace_arrays.txt') ==
+    ['owner: overlay', 'app: {"name":"base","ports":[8080],"debug":true}']
+
+// A value file without a top level object fails instead of replacing values
+assert !new File(basedir, 'target/outputs/array.txt').exists()
+def buildLog = new File(basedir, 'build.log').text
+assert buildLog.contains('array.json') &&
+    buildLog.contains('must contain a JSON object at the top level.')
+
+return true
@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Checks the output of every resource, that the pure include is reused only
+// by the resource with the same values as an earlier one and that pure macro
+// calls are reused only for the same arguments and values.
+
+def render = { String name ->
+  def output = new File(basedir, "target/outputs/${name}.txt")
+  assert output.isFile(): "${name} was not rendered."
+  output.text.readLines()*.trim().findAll { it }
+}
+
+assert render('a') == ['Copyright acme', 'owner: ACME', 'name: a']
+assert render('b') == ['Copyright acme', 'owner: ACME', 'name: b']
+assert render('c') == ['Copyright other', 'owner: OTHER', 'name: c']
+
+// A value changed between two includes is read again by the second include
+assert render('mutation') == ['1|1,2']
+
+def buildLog = new File(basedir, 'build.log').readLines()
+
+// Only resource b reads the same owner as an earlier resource
+def reused = buildLog.findAll { it.contains('Reusing rendered include') }
+assert reused.size() == 1: "Expected 1 reused include but found ${reused.size()}."
+
+// The include which sets a variable is rendered every time
+assert buildLog.any {
+  it.contains("Pure include 'stateful.j2' uses 'set' tags and will not be memoized.")
+}
+
+// Only the repeated call with the same argument and owner is reused
+assert render('macros') ==
+    ['== one by acme ==', '== one by acme ==', '== two by acme ==', '[x]']
+assert render('macros_other') ==
+    ['== one by other ==', '== one by other ==', '== two by other ==', '[x]']
+
+def reusedCalls = buildLog.findAll { it.contains('Reusing rendered macro call') }
+assert reusedCalls.size() == 2:
+    "Expected 2 reused macro calls but found ${reusedCalls.size()}."
+
+// The macro which calls caller() is rendered every time
+assert buildLog.any {
+  it.contains("Pure macro 'wrap' uses 'caller' and will not be memoized.")
+}
+
+return true
@@ -0,0 +1,40 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Checks that every breached limit is reported by name and that no output
+// of a failed resource is written.
+
+def buildLog = new File(basedir, 'build.log').text
+
+def expected = [
+    'output.j2\' exceeds limit jinja-maven.maxOutputSize=1000 bytes.',
+    'output_value.j2\' exceeds limit jinja-maven.maxOutputSize=1000 bytes.',
+    'depth.j2\' failed: Nested includes exceed limit jinja-maven.maxIncludeDepth=2.',
+    'import_depth.j2\' failed: Nested includes exceed limit jinja-maven.maxIncludeDepth=2.',
+    'value_depth.j2\' failed: Nested values exceed limit jinja-maven.maxRenderDepth=2.',
+    'time.j2\' exceeded limit jinja-maven.maxRenderTime=1000 ms.',
+    'exceed limit jinja-maven.maxContextSize=10 bytes.',
+]
+expected.each { message ->
+  assert buildLog.contains(message): "Missing limit breach: ${message}"
+}
+
+['output', 'output_value', 'depth', 'import_depth', 'value_depth', 'time', 'context'].each { name ->
+  assert !new File(basedir, "target/outputs/${name}.txt").exists():
+      "Output of the ${name} build was written."
+}
+
+return true
@@ -0,0 +1,154 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Generates a synthetic project at the scale given by the script variables
+// configured in the run-its profile of the plugin pom:
+//   resourceCount      - resources rendered by the 'resources' build
+//   valueFileSizeMb    - size of the value file of the 'values' build
+//   includeDepth       - length of the include chain of the 'includes' build
+//   modelPropertyCount - properties added to the Maven model
+//   modelResourceCount - resources rendered by the 'model' build
+
+import groovy.json.JsonOutput
+
+int resources = resourceCount as Integer
+int valueSizeMb = valueFileSizeMb as Integer
+int depth = includeDepth as Integer
+int properties = modelPropertyCount as Integer
+int modelResources = modelResourceCount as Integer
+
+File templates = new File(basedir, 'src/main/resources/templates')
+File values = new File(basedir, 'src/main/resources/values')
+templates.mkdirs()
+values.mkdirs()
+
+def resourceXml = { String template, List<String> valueFiles, String output,
+                    boolean includeMavenProperties, String dependencyDir ->
+  StringBuilder xml = new StringBuilder()
+  xml << '<resource>'
+  xml << "<includeMavenProperties>${includeMavenProperties}</includeMavenProperties>"
+  xml << "<templateFilePath>${template}</templateFilePath>"
+  if (valueFiles) {
+    xml << '<valueFiles>'
+    valueFiles.each { xml << "<param>${it}</param>" }
+    xml << '</valueFiles>'
+  }
+  xml << "<outputFilePath>${output}</outputFilePath>"
+  if (dependencyDir) {
+    xml << "<dependencyDirs><param>${dependencyDir}</param></dependencyDirs>"
+  }
+  xml << '</resource>\n'
+  xml.toString()
+}
+
+// Many small resources sharing a template and a common value file
+new File(templates, 'resource.j2').text =
+    'name: {{ name }}\nindex: {{ index }}\nowner: {{ owner }}\n'
+new File(values, 'common.json').text =
+    JsonOutput.toJson([owner: 'scalability-it'])
+
+File resourceValues = new File(values, 'resources')
+resourceValues.mkdirs()
+
+StringBuilder resourcesXml = new StringBuilder()
+for (int i = 0; i < resources; i++) {
+  new File(resourceValues, "resource_${i}.json").text =
+      JsonOutput.toJson([name: "resource-${i}".toString(), index: i])
+  resourcesXml << resourceXml(
+      'src/main/resources/templates/resource.j2',
+      ['src/main/resources/values/common.json',
+       "src/main/resources/values/resources/resource_${i}.json".toString()],
+      "target/outputs/resources/resource_${i}.txt",
+      false,
+      null)
+}
+
+// Single resource with a large value file, streamed to disk
+long valueSizeBytes = valueSizeMb * 1024L * 1024L
+File largeValues = new File(values, 'large.json')
+largeValues.withWriter('UTF-8') { writer ->
+  writer << '{"first":"item-0","items":['
+  long written = 0
+  int item = 0
+  while (written < valueSizeBytes) {
+    String json = (item > 0 ? ',' : '') + JsonOutput.toJson(
+        [id: item, name: "item-${item}".toString(), tags: ['a', 'b', 'c']])
+    writer << json
+    written += json.length()
+    item++
+  }
+  writer << ']}'
+}
+new File(templates, 'values.j2').text =
+    'count: {{ items|length }}\nfirst: {{ first }}\n'
+
+String valuesXml = resourceXml(
+    'src/main/resources/templates/values.j2',
+    ['src/main/resources/values/large.json'],
+    'target/outputs/values.txt',
+    false,
+    null)
+
+// Single resource with a chain of includes
+File includes = new File(templates, 'includes')
+includes.mkdirs()
+for (int i = 0; i < depth; i++) {
+  String next = i + 1 < depth
+      ? "{% include 'level_${i + 1}.j2' %}"
+      : 'end: {{ name }}'
+  new File(includes, "level_${i}.j2").text = "level ${i}\n${next}\n"
+}
+new File(values, 'includes.json').text = JsonOutput.toJson([name: 'includes'])
+
+String includesXml = resourceXml(
+    'src/main/resources/templates/includes/level_0.j2',
+    ['src/main/resources/values/includes.json'],
+    'target/outputs/includes.txt',
+    false,
+    'src/main/resources/templates/includes/')
+
+// Resources using a large Maven model
+StringBuilder propertiesXml = new StringBuilder()
+for (int i = 0; i < properties; i++) {
+  propertiesXml << "<it.prop.${i}>value-${i}</it.prop.${i}>\n"
+}
+new File(templates, 'model.j2').text =
+    "artifact: {{ maven_properties.artifactId }}\n" +
+        "last: {{ maven_properties.properties['it.prop.${properties - 1}'] }}\n"
+
+StringBuilder modelXml = new StringBuilder()
+for (int i = 0; i < modelResources; i++) {
+  modelXml << resourceXml(
+      'src/main/resources/templates/model.j2',
+      [],
+      "target/outputs/model/model_${i}.txt",
+      true,
+      null)
+}
+
+File pom = new File(basedir, 'pom.xml')
+pom.text = pom.text
+    .replace('<!-- generated:properties -->', propertiesXml.toString())
+    .replace('<!-- generated:resources -->', resourcesXml.toString())
+    .replace('<!-- generated:values -->', valuesXml)
+    .replace('<!-- generated:includes -->', includesXml)
+    .replace('<!-- generated:model -->', modelXml.toString())
+
+println "Generated synthetic project with ${resources} resource(s), " +
+    "${valueSizeMb} MB value file, ${depth} include level(s) and " +
+    "${properties} model propert(ies)."
+
+return true
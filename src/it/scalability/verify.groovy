@@ -0,0 +1,140 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Measures every generate build of invoker.properties from build.log, records
+// the results in scalability-report.txt and asserts them against the budgets
+// of the run-its profile. The builds run with log timestamps and GC logging
+// enabled through invoker.mavenOpts:
+//   render time - time between the start and the end of the rendering
+//                 process, taken from the timestamps of the log lines
+//   peak heap   - largest heap usage before a garbage collection of the
+//                 build, taken from the GC log
+
+def dimensions = [
+    [name: 'resources', maxMillis: resourcesMaxMillis as Long,
+     maxHeapMb: resourcesMaxHeapMb as Long],
+    [name: 'values', maxMillis: valuesMaxMillis as Long,
+     maxHeapMb: valuesMaxHeapMb as Long],
+    [name: 'includes', maxMillis: includesMaxMillis as Long,
+     maxHeapMb: includesMaxHeapMb as Long],
+    [name: 'model', maxMillis: modelMaxMillis as Long,
+     maxHeapMb: modelMaxHeapMb as Long],
+]
+
+def timestampPattern = ~/^(\d{2}):(\d{2}):(\d{2})\.(\d{3}) /
+// Matches both '65536K->1234K(251392K)' and '24M->3M(256M)' of the GC logs
+// written by Java 8 and Java 9+
+def gcPattern = ~/(\d+)([KMG])->\d+[KMG]\(/
+def toMillis = { line ->
+  def matcher = line =~ timestampPattern
+  if (!matcher.find()) {
+    return null
+  }
+  ((matcher.group(1) as Long) * 3600 + (matcher.group(2) as Long) * 60 +
+      (matcher.group(3) as Long)) * 1000 + (matcher.group(4) as Long)
+}
+def toMb = { long value, String unit ->
+  switch (unit) {
+    case 'K': return value.intdiv(1024)
+    case 'G': return value * 1024
+    default: return value
+  }
+}
+
+def builds = []
+def build = null
+new File(basedir, 'build.log').eachLine { line ->
+  if (line.contains('Scanning for projects')) {
+    build = [start: null, end: null, heapMb: 0L]
+    builds << build
+  } else if (build != null) {
+    if (line.contains('Starting resource rendering process.')) {
+      build.start = toMillis(line)
+    } else if (line.contains('Resource rendering process is complete.')) {
+      build.end = toMillis(line)
+    }
+
+    def gc = line =~ gcPattern
+    if (gc.find()) {
+      build.heapMb = Math.max(
+          build.heapMb, toMb(gc.group(1) as Long, gc.group(2)) as Long)
+    }
+  }
+}
+
+assert builds.size() == dimensions.size():
+    "Expected ${dimensions.size()} generate builds but found ${builds.size()}."
+
+def failures = []
+def report = new StringBuilder()
+dimensions.eachWithIndex { dimension, i ->
+  def measured = builds[i]
+  assert measured.start != null && measured.end != null:
+      "${dimension.name}: rendering start or end was not logged with a timestamp."
+
+  // Timestamps carry no date, so a build may run past midnight
+  long millis = measured.end - measured.start
+  if (millis < 0) {
+    millis += 24L * 3600 * 1000
+  }
+
+  report << String.format('%-10s %8d ms (budget %d) %6d MB (budget %d)%n',
+      dimension.name, millis, dimension.maxMillis,
+      measured.heapMb, dimension.maxHeapMb)
+
+  if (millis > dimension.maxMillis) {
+    failures << "${dimension.name}: took ${millis} ms, " +
+        "budget is ${dimension.maxMillis} ms"
+  }
+  if (measured.heapMb > dimension.maxHeapMb) {
+    failures << "${dimension.name}: peak heap usage ${measured.heapMb} MB, " +
+        "budget is ${dimension.maxHeapMb} MB"
+  }
+}
+
+new File(basedir, 'scalability-report.txt').text = report.toString()
+println report
+
+// Check the outputs of every dimension
+def outputs = new File(basedir, 'target/outputs')
+int resources = resourceCount as Integer
+int modelResources = modelResourceCount as Integer
+int properties = modelPropertyCount as Integer
+
+def resourceOutputs = new File(outputs, 'resources').listFiles()
+assert resourceOutputs != null && resourceOutputs.length == resources:
+    "Expected ${resources} resource output(s)."
+def lastResource = new File(outputs, "resources/resource_${resources - 1}.txt")
+assert lastResource.text.startsWith(
+    "name: resource-${resources - 1}\nindex: ${resources - 1}\n" +
+        'owner: scalability-it'): 'Shared value file was not merged.'
+
+assert new File(outputs, 'values.txt').text.contains('first: item-0'):
+    'Large value file was not rendered.'
+
+assert new File(outputs, 'includes.txt').text.contains('end: includes'):
+    'Include chain was not rendered to the last level.'
+
+def modelOutputs = new File(outputs, 'model').listFiles()
+assert modelOutputs != null && modelOutputs.length == modelResources:
+    "Expected ${modelResources} model output(s)."
+assert new File(outputs, 'model/model_0.txt').text
+    .contains("last: value-${properties - 1}"):
+    'Properties of the Maven model were not rendered.'
+
+assert failures.isEmpty(): failures.join('\n')
+
+return true
@@ -0,0 +1,35 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+// Checks that verify passes on generated outputs and reports the edited
+// output without overwriting it.
+
+def buildLog = new File(basedir, 'build.log').text
+
+assert buildLog.contains('All 2 resource output(s) are up to date.'):
+    'Verify did not pass on freshly generated outputs.'
+
+assert buildLog.contains('1 of 2 resource output(s) are not up to date'):
+    'Verify did not fail on the edited output.'
+assert buildLog =~ /second\.txt: differs .*first difference at line 2: /:
+    'The edited output was not summarized with its first difference.'
+assert buildLog.contains('expected [line two: edited] but rendered [line two: original]')
+assert !(buildLog =~ /first\.txt: differs/): 'An unchanged output was reported.'
+
+// Verify never writes outputs
+assert new File(basedir, 'target/outputs/second.txt').text.contains('line two: edited')
+
+return true
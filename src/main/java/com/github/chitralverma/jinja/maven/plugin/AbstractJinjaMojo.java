@@ -0,0 +1,1113 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin;
+
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.*;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.github.chitralverma.jinja.maven.plugin.TemplateCompiler.CompiledTemplate;
+import com.github.chitralverma.jinja.maven.plugin.bundle.BundleCache;
+import com.github.chitralverma.jinja.maven.plugin.bundle.BundleResourceLocator;
+import com.github.chitralverma.jinja.maven.plugin.tags.PureIncludeTag;
+import com.github.chitralverma.jinja.maven.plugin.tags.PureMacroTag;
+import com.github.chitralverma.jinja.maven.plugin.utils.JsonMergeUtils;
+import com.github.chitralverma.jinja.maven.plugin.utils.MavenPropertiesUtils;
+import com.google.common.base.Throwables;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hubspot.jinjava.Jinjava;
+import com.hubspot.jinjava.JinjavaConfig;
+import com.hubspot.jinjava.interpret.Context;
+import com.hubspot.jinjava.interpret.InterpretException;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.interpret.OutputTooBigException;
+import com.hubspot.jinjava.interpret.RenderResult;
+import com.hubspot.jinjava.interpret.TemplateError;
+import com.hubspot.jinjava.interpret.TemplateError.ErrorReason;
+import com.hubspot.jinjava.loader.CascadingResourceLocator;
+import com.hubspot.jinjava.loader.ClasspathResourceLocator;
+import com.hubspot.jinjava.loader.FileLocator;
+import com.hubspot.jinjava.loader.ResourceLocator;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * {@link AbstractJinjaMojo}
+ *
+ * <p>Holds the configuration, validations and rendering logic which are common
+ * to all goals of this plugin. Goals define what is done with the validated
+ * resource set in {@link #executeGoal()}.
+ */
+public abstract class AbstractJinjaMojo extends AbstractMojo {
+
+  /** The Maven Project Object. */
+  @Component protected MavenProject project;
+
+  /** The Maven Session Object. */
+  @Parameter(defaultValue = "${session}", readonly = true)
+  protected MavenSession session;
+
+  /** Configuration to skip the entire goal. Default: false */
+  @Parameter(property = "jinja-maven.skip", defaultValue = "false")
+  private final Boolean skip = Boolean.FALSE;
+
+  /** Configuration to fail if values for template are missing. Default: true */
+  @Parameter(
+      property = "jinja-maven.failOnMissingValues",
+      defaultValue = "true")
+  private final Boolean failOnMissingValues = Boolean.TRUE;
+
+  /**
+   * Configuration for resource set. A resource set is bundle of one or more
+   * resources which can be translated to a rendering job. Each resource
+   * contains a template file path, one or more value files and an output file
+   * path.
+   */
+  @Parameter(required = true)
+  protected final List<ResourceBean> resourceSet = Collections.emptyList();
+
+  /**
+   * Configuration for names of templates whose includes are pure, i.e. their
+   * output depends only on their content and the context variables they read.
+   * Rendered output of such includes is cached and reused across resources.
+   * Names must match the ones used in include tags. Default: empty
+   */
+  @Parameter private final List<String> pureTemplates = Collections.emptyList();
+
+  /**
+   * Configuration for names of macros which are pure, i.e. their output depends
+   * only on their arguments and the context variables they read. Rendered
+   * output of calls to such macros is cached and reused across resources.
+   * Default: empty
+   */
+  @Parameter private final List<String> pureMacros = Collections.emptyList();
+
+  /**
+   * Configuration for extensions of the files in dependency directories which
+   * are compiled along with the templates of the resource set. Default: j2,
+   * jinja, jinja2
+   */
+  @Parameter
+  private final List<String> templateExtensions =
+      Arrays.asList("j2", "jinja", "jinja2");
+
+  /**
+   * Directory in which compiled template index is persisted. Default:
+   * ${project.build.directory}/jinja-maven
+   */
+  @Parameter(
+      property = "jinja-maven.cacheDirectory",
+      defaultValue = "${project.build.directory}/jinja-maven")
+  protected File cacheDirectory;
+
+  /**
+   * Directory in which bundles referenced by artifact coordinates are
+   * extracted. It is shared across builds. Default:
+   * ${user.home}/.m2/jinja-maven/bundles
+   */
+  @Parameter(
+      property = "jinja-maven.bundleCacheDirectory",
+      defaultValue = "${user.home}/.m2/jinja-maven/bundles")
+  private File bundleCacheDirectory;
+
+  /**
+   * Configuration for maximum wall time in milliseconds to render a single
+   * resource. Default: 0, i.e. no limit
+   */
+  @Parameter(property = "jinja-maven.maxRenderTime", defaultValue = "0")
+  private final Long maxRenderTime = 0L;
+
+  /**
+   * Configuration for maximum size in bytes of the output of a single resource.
+   * Default: 0, i.e. no limit
+   */
+  @Parameter(property = "jinja-maven.maxOutputSize", defaultValue = "0")
+  private final Long maxOutputSize = 0L;
+
+  /**
+   * Configuration for maximum depth of nested rendering of values which
+   * themselves contain templates. Default: 10
+   */
+  @Parameter(property = "jinja-maven.maxRenderDepth", defaultValue = "10")
+  private final Integer maxRenderDepth = 10;
+
+  /**
+   * Configuration for maximum depth of nested includes and imports. Default: 0,
+   * i.e. no limit
+   */
+  @Parameter(property = "jinja-maven.maxIncludeDepth", defaultValue = "0")
+  private final Integer maxIncludeDepth = 0;
+
+  /**
+   * Configuration for maximum total size in bytes of the value files of a
+   * single resource. Default: 0, i.e. no limit
+   */
+  @Parameter(property = "jinja-maven.maxContextSize", defaultValue = "0")
+  private final Long maxContextSize = 0L;
+
+  /**
+   * Executes renders which are limited by `maxRenderTime`. Cancelled renders
+   * stop at their next expression or template, see {@link LimitedInterpreter}.
+   * Threads are daemons so that a render which does not stop after cancellation
+   * can not hang the build.
+   */
+  private ExecutorService renderExecutor;
+
+  /** Resolves and extracts bundles referenced by artifact coordinates. */
+  private BundleCache bundleCache;
+
+  /** Parses templates once per execution and checks their syntax. */
+  private TemplateCompiler templateCompiler;
+
+  /** Include tag shared by all renders which memoizes pure includes. */
+  private PureIncludeTag pureIncludeTag;
+
+  /** Macro tag shared by all renders which memoizes pure macro calls. */
+  private PureMacroTag pureMacroTag;
+
+  /**
+   * Stores maven project properties as flattened keys in case if it is required
+   * to be added on jinja context for one or more resource.
+   */
+  private final Map<String, Object> mavenProperties = Maps.newHashMap();
+
+  /**
+   * Stores parsed value files by their canonical path so that value files
+   * common to several resources are read only once. Only value files in {@link
+   * #sharedValueFiles} are stored, others are released after use.
+   */
+  private final Map<File, JsonNode> parsedValueFiles = Maps.newHashMap();
+
+  /**
+   * Canonical paths of value files used by more than one resource. These are
+   * found during validation, artifact value files once they are resolved.
+   */
+  private final Set<File> sharedValueFiles = Sets.newConcurrentHashSet();
+
+  /** Artifact value files used by more than one resource. */
+  private final Set<String> sharedArtifactValueFiles = Sets.newHashSet();
+
+  /**
+   * Stores template contents by their canonical path so that templates common
+   * to several resources are read only once.
+   */
+  private final Map<File, String> templateContents = Maps.newHashMap();
+
+  /** Stores rendered output of pure includes for the whole execution. */
+  private final Map<String, String> pureIncludeCache =
+      new ConcurrentHashMap<>();
+
+  /** Stores rendered output of pure macro calls for the whole execution. */
+  private final Map<String, String> pureMacroCache = new ConcurrentHashMap<>();
+
+  protected static final ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * Entry point to all goals. The whole process can be optionally skipped if
+   * required using the `Skip` configuration.
+   *
+   * <p>Step 1: Perform validation of configuration values provided by the user.
+   * Step 2: Execute the goal specific logic on the validated resource set.
+   *
+   * @throws MojoExecutionException Rendering errors result in
+   *     `MojoExecutionException`
+   * @throws MojoFailureException Validations errors result in
+   *     `MojoFailureException`
+   */
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    getLog().debug("Plugin execution begins.");
+
+    if (Boolean.TRUE.equals(skip)) {
+      getLog()
+          .warn(
+              String.format("jinja:%s is skipped as %s=true", getGoal(), SKIP));
+    } else {
+      validate();
+      printConfigs();
+
+      try {
+        executeGoal();
+      } finally {
+        shutdownRenderExecutor();
+      }
+    }
+
+    getLog().debug("Plugin execution ends.");
+  }
+
+  /**
+   * Name of the goal being executed.
+   *
+   * @return goal name
+   */
+  protected abstract String getGoal();
+
+  /**
+   * Goal specific logic, executed after the configuration is validated.
+   *
+   * @throws MojoExecutionException Rendering errors result in
+   *     `MojoExecutionException`
+   * @throws MojoFailureException Validations errors result in
+   *     `MojoFailureException`
+   */
+  protected abstract void executeGoal()
+      throws MojoExecutionException, MojoFailureException;
+
+  /**
+   * Adds goal specific configuration values to be printed.
+   *
+   * @param configuration configuration values to be printed
+   */
+  protected void addConfigs(ObjectNode configuration) {}
+
+  /** Prints the configuration values provided by the user to debug level. */
+  private void printConfigs() {
+    mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
+
+    try {
+      ObjectNode configuration = mapper.createObjectNode();
+      configuration.set(SKIP, BooleanNode.valueOf(skip));
+      configuration.set(RESOURCE_SET, new POJONode(resourceSet));
+      configuration.set(
+          FAIL_ON_MISSING_VALUES, new POJONode(failOnMissingValues));
+      configuration.set(PURE_TEMPLATES, new POJONode(pureTemplates));
+      configuration.set(PURE_MACROS, new POJONode(pureMacros));
+      configuration.set(CACHE_DIRECTORY, new POJONode(cacheDirectory));
+      configuration.set(TEMPLATE_EXTENSIONS, new POJONode(templateExtensions));
+      configuration.set(
+          BUNDLE_CACHE_DIRECTORY, new POJONode(bundleCacheDirectory));
+      configuration.set(MAX_RENDER_TIME, new POJONode(maxRenderTime));
+      configuration.set(MAX_OUTPUT_SIZE, new POJONode(maxOutputSize));
+      configuration.set(MAX_RENDER_DEPTH, new POJONode(maxRenderDepth));
+      configuration.set(MAX_INCLUDE_DEPTH, new POJONode(maxIncludeDepth));
+      configuration.set(MAX_CONTEXT_SIZE, new POJONode(maxContextSize));
+      addConfigs(configuration);
+
+      String jsonConfig = mapper.writeValueAsString(configuration);
+      getLog().debug(String.format("Plugin Config:%n%s", jsonConfig));
+    } catch (JsonProcessingException e) {
+      getLog().warn("Unable to print configs", e);
+    }
+  }
+
+  /**
+   * Validates the configuration values provided by the user.
+   *
+   * @throws MojoFailureException Validations errors result in
+   *     `MojoFailureException`
+   */
+  private void validate() throws MojoFailureException {
+    getLog().debug("Starting validations.");
+
+    validateResourceSet();
+    findSharedValueFiles();
+    getLog().debug("Validations complete");
+  }
+
+  /**
+   * Validates the resource set values provided by the user.
+   *
+   * @throws MojoFailureException Validations errors result in
+   *     `MojoFailureException`
+   */
+  private void validateResourceSet() throws MojoFailureException {
+    if (resourceSet.isEmpty()) {
+      throw new MojoFailureException(
+          ERROR_STATEMENT,
+          new IllegalArgumentException(
+              String.format(
+                  "'%s' must be defined with at least 1 resource.",
+                  resourceSet)));
+    }
+
+    for (ResourceBean resource : resourceSet) {
+      getLog().debug(String.format("Validating resource '%s'", resource));
+      validateResource(resource);
+    }
+  }
+
+  /**
+   * Counts the resources using each value file, so that only value files used
+   * by more than one resource are kept in memory once parsed.
+   *
+   * @throws MojoFailureException this occurs when the canonical path of a value
+   *     file can not be determined
+   */
+  private void findSharedValueFiles() throws MojoFailureException {
+    Multiset<File> valueFileUsages = HashMultiset.create();
+    Multiset<String> artifactValueFileUsages = HashMultiset.create();
+
+    for (ResourceBean resource : resourceSet) {
+      for (File valueFile : resource.getValueFiles()) {
+        try {
+          valueFileUsages.add(valueFile.getCanonicalFile());
+        } catch (IOException e) {
+          throw new MojoFailureException(
+              ERROR_STATEMENT,
+              new IllegalArgumentException(
+                  String.format(
+                      "Provided valueFile at location '%s' is invalid.",
+                      valueFile),
+                  e));
+        }
+      }
+
+      artifactValueFileUsages.addAll(resource.getArtifactValueFiles());
+    }
+
+    for (Multiset.Entry<File> entry : valueFileUsages.entrySet()) {
+      if (entry.getCount() > 1) {
+        sharedValueFiles.add(entry.getElement());
+      }
+    }
+
+    for (Multiset.Entry<String> entry : artifactValueFileUsages.entrySet()) {
+      if (entry.getCount() > 1) {
+        sharedArtifactValueFiles.add(entry.getElement());
+      }
+    }
+  }
+
+  /**
+   * Validates a resource of resource set as defined by the user.
+   *
+   * @param resource A user defined resource
+   * @throws MojoFailureException Validations errors result in
+   *     `MojoFailureException`
+   */
+  protected void validateResource(ResourceBean resource)
+      throws MojoFailureException {
+    if (resource == null) {
+      throw new MojoFailureException(
+          ERROR_STATEMENT,
+          new IllegalArgumentException(
+              "Malformed 'resource' was encountered."));
+    }
+
+    validateFile("templateFilePath", resource.getTemplateFilePath());
+
+    if (!resource.getIncludeMavenProperties()
+        && resource.getValueFiles().isEmpty()
+        && resource.getArtifactValueFiles().isEmpty()) {
+      throw new MojoFailureException(
+          ERROR_STATEMENT,
+          new IllegalArgumentException(
+              "'valueFiles' or 'artifactValueFiles' must be defined with at "
+                  + "least 1 path or set 'includeMavenProperties' to true."));
+    }
+
+    for (File file : resource.getValueFiles()) {
+      validateFile("valueFile", file);
+    }
+
+    for (String artifactValueFile : resource.getArtifactValueFiles()) {
+      if (artifactValueFile == null
+          || !artifactValueFile.contains(ARTIFACT_PATH_SEPARATOR)) {
+        throw new MojoFailureException(
+            ERROR_STATEMENT,
+            new IllegalArgumentException(
+                String.format(
+                    "Provided artifactValueFile '%s' must be in the form "
+                        + "groupId:artifactId:version%spath.",
+                    artifactValueFile, ARTIFACT_PATH_SEPARATOR)));
+      }
+    }
+
+    for (String coordinates : resource.getDependencyArtifacts()) {
+      try {
+        new DefaultArtifact(StringUtils.trimToEmpty(coordinates));
+      } catch (IllegalArgumentException e) {
+        throw new MojoFailureException(
+            ERROR_STATEMENT,
+            new IllegalArgumentException(
+                String.format(
+                    "Provided dependencyArtifact '%s' must be in the form "
+                        + "groupId:artifactId[:extension[:classifier]]:version.",
+                    coordinates),
+                e));
+      }
+    }
+
+    validateDependencies(resource.getDependencyDirs());
+  }
+
+  /**
+   * Validates a file based on path provided by the user for a resource.
+   *
+   * @param key Identifier for the type of file path (templateFile or valueFile)
+   * @param file Representation of file and directory path
+   * @throws MojoFailureException Validations errors result in
+   *     `MojoFailureException`
+   */
+  private void validateFile(String key, File file) throws MojoFailureException {
+    if (file == null) {
+      throw new MojoFailureException(
+          ERROR_STATEMENT,
+          new IllegalArgumentException(
+              String.format("'%s' path must not be null.", key)));
+    }
+
+    if (!file.exists()) {
+      throw new MojoFailureException(
+          ERROR_STATEMENT,
+          new IllegalArgumentException(
+              String.format(
+                  "Provided %s at location '%s' does not exist.", key, file)));
+    }
+
+    if (!file.isFile()) {
+      throw new MojoFailureException(
+          ERROR_STATEMENT,
+          new IllegalArgumentException(
+              String.format(
+                  "Provided %s at location '%s' must be a file.", key, file)));
+    }
+  }
+
+  /**
+   * Validates path provided as one or more dependencies location.
+   *
+   * @param dirs Directories to be added to FileLocator.
+   * @throws MojoFailureException Validations errors result in
+   *     `MojoFailureException`
+   */
+  private void validateDependencies(List<File> dirs)
+      throws MojoFailureException {
+    if (dirs == null || dirs.isEmpty()) {
+      getLog().debug("No dependencies defined.");
+    } else {
+      for (File file : dirs) {
+        if (file == null) {
+          throw new MojoFailureException(
+              ERROR_STATEMENT,
+              new IllegalArgumentException(
+                  "'dependencyPath' path must not be null."));
+        }
+
+        if (!file.exists()) {
+          throw new MojoFailureException(
+              ERROR_STATEMENT,
+              new IllegalArgumentException(
+                  String.format(
+                      "Provided dependencyPath at location '%s' does not exist.",
+                      file)));
+        }
+
+        if (file.isFile()) {
+          throw new MojoFailureException(
+              ERROR_STATEMENT,
+              new IllegalArgumentException(
+                  String.format(
+                      "Provided dependencyPath at location '%s' must be a directory.",
+                      file)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds the Jinjava configuration shared by all goals. Its interpreters,
+   * including the ones Jinjava creates for imported templates, are {@link
+   * LimitedInterpreter}.
+   *
+   * @return Jinjava configuration
+   */
+  protected JinjavaConfig getJinjavaConfig() {
+    JinjavaConfig.Builder builder =
+        JinjavaConfig.newBuilder()
+            .withFailOnUnknownTokens(failOnMissingValues)
+            .withMaxRenderDepth(
+                maxRenderDepth > 0 ? maxRenderDepth : Integer.MAX_VALUE)
+            .withInterperterFactory(
+                new LimitedInterpreter.Factory(
+                    this::getTemplateCompiler, maxIncludeDepth));
+
+    if (maxOutputSize > 0) {
+      builder.withMaxOutputSize(maxOutputSize);
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Compiles the templates of the resource set and fails on syntax errors.
+   * Templates parsed here are rendered without being parsed again in the same
+   * execution.
+   *
+   * @param useIndex whether templates which were compiled successfully by an
+   *     earlier build are looked up in the persisted index and are not checked
+   *     again. Templates skipped this way are parsed when they are rendered, so
+   *     the index is only useful to goals which do not render.
+   * @throws MojoExecutionException `IOException` are recorded if any.
+   * @throws MojoFailureException Syntax errors result in `MojoFailureException`
+   */
+  protected void compileTemplates(boolean useIndex)
+      throws MojoExecutionException, MojoFailureException {
+    try {
+      List<String> errors =
+          getTemplateCompiler().compile(resourceSet, useIndex);
+
+      if (!errors.isEmpty()) {
+        throw new MojoFailureException(
+            String.format(
+                "%d template(s) failed to compile:%n%s",
+                errors.size(), String.join(System.lineSeparator(), errors)));
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException(
+          "Error occurred while compiling templates.", e);
+    }
+  }
+
+  /**
+   * Rendering logic using Jinjava.
+   *
+   * <p>Value file(s) are read as JSON Objects using jackson and all the nodes
+   * are iterated add keys and typed values to a common context which will hold
+   * all values for substitution into the template.
+   *
+   * <p>Reason to choose JSON format for value files: - Type safety of values -
+   * Unstructured - Support complex types - Human readable and popular
+   *
+   * <p>Once the rendering is complete, errors are thrown if required.
+   *
+   * @param resource A user defined resource
+   * @return Rendered content as string
+   * @throws MojoExecutionException Rendering errors result in
+   *     `MojoFailureException`
+   */
+  protected String renderFromResource(ResourceBean resource)
+      throws MojoExecutionException {
+    Jinjava jinjava = newJinjava();
+    addDependencyLocators(jinjava, resource);
+
+    Map<String, Object> context = Maps.newHashMap();
+
+    try {
+      CompiledTemplate template =
+          getTemplateCompiler()
+              .getTemplate(readTemplate(resource.getTemplateFilePath()));
+
+      // Add context from maven properties if enabled
+      if (resource.getIncludeMavenProperties()) {
+        addContextFromMavenProperties(context);
+      }
+
+      // Add context from provided value file(s)
+      List<File> valueFiles = resolveValueFiles(resource);
+      validateContextSize(resource, valueFiles);
+      addContextFromValueFiles(resource, valueFiles, context);
+
+      RenderResult renderResult =
+          renderWithinLimits(jinjava, resource, template, context);
+      validateOutputSize(resource, renderResult);
+
+      if (!renderResult.getErrors().isEmpty()
+          && Boolean.TRUE.equals(failOnMissingValues)) {
+        throw new MojoExecutionException(
+            "Error occurred during resource rendering.",
+            new IllegalArgumentException(
+                renderResult.getErrors().stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining(","))));
+      } else {
+        return renderResult.getOutput();
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException(
+          "Error occurred during resource rendering.", e);
+    } catch (InterpretException e) {
+      // Output exceeding the limit inside a tag fails the tag with this cause
+      if (Throwables.getCausalChain(e).stream()
+          .anyMatch(OutputTooBigException.class::isInstance)) {
+        throw outputSizeExceeded(resource, e);
+      }
+
+      throw new MojoExecutionException(
+          String.format(
+              "Rendering of template '%s' failed: %s",
+              resource.getTemplateFilePath(), e.getMessage()),
+          e);
+    }
+  }
+
+  /**
+   * Renders a template, cancelling the render if it exceeds `maxRenderTime`.
+   *
+   * @param jinjava Jinja context for Java
+   * @param resource A user defined resource
+   * @param template parsed template to render
+   * @param context jinja context of values
+   * @return result of the render
+   * @throws MojoExecutionException this occurs when the render exceeds
+   *     `maxRenderTime` or fails unexpectedly
+   */
+  private RenderResult renderWithinLimits(
+      Jinjava jinjava,
+      ResourceBean resource,
+      CompiledTemplate template,
+      Map<String, Object> context)
+      throws MojoExecutionException {
+    if (maxRenderTime <= 0) {
+      return render(jinjava, template, context);
+    }
+
+    Future<RenderResult> render =
+        getRenderExecutor().submit(() -> render(jinjava, template, context));
+
+    try {
+      return render.get(maxRenderTime, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      render.cancel(true);
+      throw new MojoExecutionException(
+          String.format(
+              "Rendering of template '%s' exceeded limit %s=%d ms.",
+              resource.getTemplateFilePath(), MAX_RENDER_TIME, maxRenderTime),
+          e);
+    } catch (InterruptedException e) {
+      render.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException(
+          "Interrupted during resource rendering.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof InterpretException) {
+        throw (InterpretException) e.getCause();
+      }
+
+      throw new MojoExecutionException(
+          "Error occurred during resource rendering.", e.getCause());
+    }
+  }
+
+  /**
+   * Renders a parsed template. Errors found while parsing the template are
+   * reported along with the errors of the render.
+   *
+   * @param jinjava Jinja context for Java
+   * @param template parsed template to render
+   * @param context jinja context of values
+   * @return result of the render
+   */
+  private static RenderResult render(
+      Jinjava jinjava, CompiledTemplate template, Map<String, Object> context) {
+    JinjavaConfig config = jinjava.getGlobalConfig();
+    JinjavaInterpreter interpreter =
+        config
+            .getInterpreterFactory()
+            .newInstance(
+                jinjava,
+                new Context(jinjava.getGlobalContext(), context),
+                config);
+    template.getErrors().forEach(interpreter::addError);
+    JinjavaInterpreter.pushCurrent(interpreter);
+
+    try {
+      String output = interpreter.render(template.getRoot());
+      return new RenderResult(
+          output, interpreter.getContext(), interpreter.getErrors());
+    } finally {
+      JinjavaInterpreter.popCurrent();
+    }
+  }
+
+  /**
+   * Creates a Jinjava with the configuration and tags shared by all renders.
+   * Templates are parsed once per execution and bound to these tags, so tags
+   * are shared by all Jinjava instances of an execution.
+   *
+   * @return new Jinjava
+   */
+  private Jinjava newJinjava() {
+    Jinjava jinjava = new Jinjava(getJinjavaConfig());
+
+    if (!pureTemplates.isEmpty()) {
+      jinjava.getGlobalContext().registerTag(getPureIncludeTag());
+    }
+
+    if (!pureMacros.isEmpty()) {
+      jinjava.getGlobalContext().registerTag(getPureMacroTag());
+    }
+
+    return jinjava;
+  }
+
+  private synchronized PureIncludeTag getPureIncludeTag() {
+    if (pureIncludeTag == null) {
+      pureIncludeTag =
+          new PureIncludeTag(
+              Sets.newHashSet(pureTemplates), pureIncludeCache, getLog());
+    }
+
+    return pureIncludeTag;
+  }
+
+  private synchronized PureMacroTag getPureMacroTag() {
+    if (pureMacroTag == null) {
+      pureMacroTag =
+          new PureMacroTag(
+              Sets.newHashSet(pureMacros), pureMacroCache, getLog());
+    }
+
+    return pureMacroTag;
+  }
+
+  private synchronized TemplateCompiler getTemplateCompiler() {
+    if (templateCompiler == null) {
+      templateCompiler =
+          new TemplateCompiler(
+              cacheDirectory,
+              newJinjava(),
+              templateExtensions,
+              getBundleCache(),
+              getLog());
+    }
+
+    return templateCompiler;
+  }
+
+  private synchronized BundleCache getBundleCache() {
+    if (bundleCache == null) {
+      bundleCache =
+          new BundleCache(
+              bundleCacheDirectory, session.getRepositorySession(), getLog());
+    }
+
+    return bundleCache;
+  }
+
+  private synchronized ExecutorService getRenderExecutor() {
+    if (renderExecutor == null) {
+      renderExecutor =
+          Executors.newCachedThreadPool(
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("jinja-render-%d")
+                  .build());
+    }
+
+    return renderExecutor;
+  }
+
+  private synchronized void shutdownRenderExecutor() {
+    if (renderExecutor != null) {
+      renderExecutor.shutdownNow();
+      renderExecutor = null;
+    }
+  }
+
+  /**
+   * Validates that the value files of a resource do not exceed `maxContextSize`
+   * before they are parsed.
+   *
+   * @param resource A user defined resource
+   * @param valueFiles resolved value files of the resource
+   * @throws MojoExecutionException this occurs when the limit is exceeded
+   */
+  private void validateContextSize(ResourceBean resource, List<File> valueFiles)
+      throws MojoExecutionException {
+    if (maxContextSize <= 0) {
+      return;
+    }
+
+    long contextSize = 0;
+    for (File valueFile : valueFiles) {
+      contextSize += valueFile.length();
+    }
+
+    if (contextSize > maxContextSize) {
+      throw new MojoExecutionException(
+          String.format(
+              "Value files of template '%s' are %d bytes and exceed limit "
+                  + "%s=%d bytes.",
+              resource.getTemplateFilePath(),
+              contextSize,
+              MAX_CONTEXT_SIZE,
+              maxContextSize));
+    }
+  }
+
+  /**
+   * Validates that the rendered output of a resource did not exceed
+   * `maxOutputSize`. Output of the template itself exceeding the limit stops
+   * the render and is reported as an error of the render, which fails the
+   * resource whether or not `failOnMissingValues` is set. Output of a tag
+   * exceeding the limit fails the render instead, see `renderFromResource`.
+   *
+   * @param resource A user defined resource
+   * @param renderResult result of the render
+   * @throws MojoExecutionException this occurs when the limit is exceeded
+   */
+  private void validateOutputSize(
+      ResourceBean resource, RenderResult renderResult)
+      throws MojoExecutionException {
+    for (TemplateError error : renderResult.getErrors()) {
+      if (error.getReason() == ErrorReason.OUTPUT_TOO_BIG) {
+        throw outputSizeExceeded(resource, error.getException());
+      }
+    }
+  }
+
+  private MojoExecutionException outputSizeExceeded(
+      ResourceBean resource, Throwable cause) {
+    return new MojoExecutionException(
+        String.format(
+            "Output of template '%s' exceeds limit %s=%d bytes.",
+            resource.getTemplateFilePath(), MAX_OUTPUT_SIZE, maxOutputSize),
+        cause);
+  }
+
+  /**
+   * Reads the provided template file. Read templates are cached for the whole
+   * execution, so templates shared between resources are read only once.
+   *
+   * @param templateFile provided template file
+   * @return content of the template file
+   * @throws IOException this occurs in case of file reading issues
+   */
+  private synchronized String readTemplate(File templateFile)
+      throws IOException {
+    File key = templateFile.getCanonicalFile();
+    String content = templateContents.get(key);
+
+    if (content == null) {
+      content =
+          FileUtils.readFileToString(templateFile, StandardCharsets.UTF_8);
+      templateContents.put(key, content);
+    }
+
+    return content;
+  }
+
+  /**
+   * Parses the instance of {@link MavenProject} and adds its fields (and nested
+   * fields) to context while preserving their type.
+   *
+   * @param context jinja context of values
+   * @throws JsonProcessingException this occurs when {@link MavenProject}
+   *     cannot be successfully parsed to context
+   */
+  private synchronized void addContextFromMavenProperties(
+      Map<String, Object> context) throws JsonProcessingException {
+    // Process maven properties only if not done before
+    if (mavenProperties.isEmpty()) {
+      MavenPropertiesUtils.setMavenProperties(
+          project, mavenProperties, getLog());
+    }
+
+    getLog().info("Adding maven properties to context.");
+    context.putAll(mavenProperties);
+  }
+
+  /**
+   * Resolves the value files of a resource. Value files inside artifacts come
+   * first, followed by the value files on the local file system.
+   *
+   * @param resource A user defined resource
+   * @return value files in the order in which they are merged
+   * @throws IOException this occurs when an artifact or its value file can not
+   *     be found
+   */
+  private List<File> resolveValueFiles(ResourceBean resource)
+      throws IOException {
+    List<File> valueFiles = Lists.newArrayList();
+
+    for (String artifactValueFile : resource.getArtifactValueFiles()) {
+      int separator = artifactValueFile.indexOf(ARTIFACT_PATH_SEPARATOR);
+      BundleResourceLocator bundle =
+          getBundleCache().getBundle(artifactValueFile.substring(0, separator));
+      File valueFile =
+          bundle.getFile(
+              artifactValueFile.substring(
+                  separator + ARTIFACT_PATH_SEPARATOR.length()));
+
+      if (sharedArtifactValueFiles.contains(artifactValueFile)) {
+        sharedValueFiles.add(valueFile.getCanonicalFile());
+      }
+
+      valueFiles.add(valueFile);
+    }
+
+    valueFiles.addAll(resource.getValueFiles());
+    return valueFiles;
+  }
+
+  /**
+   * Merges the value files of a resource as per its {@link ValueMergeStrategy}
+   * and adds the resulting nodes to context while preserving their type.
+   *
+   * @param resource A user defined resource
+   * @param valueFiles resolved value files of the resource
+   * @param context jinja context of values
+   * @throws IOException this occurs in case of file reading issues
+   * @throws MojoExecutionException this occurs in case of invalid keys or value
+   *     files which are not JSON objects
+   */
+  private void addContextFromValueFiles(
+      ResourceBean resource, List<File> valueFiles, Map<String, Object> context)
+      throws IOException, MojoExecutionException {
+    JsonNode mergedValues = null;
+    for (File valueFile : valueFiles) {
+      JsonNode values = readValueFile(valueFile);
+
+      // Merging a non object would silently replace all earlier values
+      if (values == null || !values.isObject()) {
+        throw new MojoExecutionException(
+            ERROR_STATEMENT,
+            new IllegalArgumentException(
+                String.format(
+                    "Provided valueFile at location '%s' must contain a JSON "
+                        + "object at the top level.",
+                    valueFile)));
+      }
+
+      mergedValues =
+          JsonMergeUtils.merge(
+              mergedValues, values, resource.getValueMergeStrategy());
+    }
+
+    if (mergedValues == null) {
+      return;
+    }
+
+    Iterator<Map.Entry<String, JsonNode>> iter = mergedValues.fields();
+
+    while (iter.hasNext()) {
+      Map.Entry<String, JsonNode> next = iter.next();
+      JsonNodeType nodeType = next.getValue().getNodeType();
+
+      if (next.getKey().contains(".")) {
+        throw new MojoExecutionException(
+            ERROR_STATEMENT,
+            new IllegalArgumentException(
+                "Keys of value files cannot contain chars in [.]"));
+      }
+
+      getLog().debug(String.format("Adding entry [ %s ] to context.", next));
+      if (nodeType == JsonNodeType.ARRAY || nodeType == JsonNodeType.OBJECT) {
+        context.put(next.getKey(), next.getValue());
+      } else {
+        context.put(next.getKey(), next.getValue().asText());
+      }
+    }
+  }
+
+  /**
+   * Reads the provided value file as JSON. Value files shared between resources
+   * are cached for the whole execution, so they are parsed once and their trees
+   * are shared instead of being copied. Other value files are parsed on every
+   * use and not retained.
+   *
+   * @param valueFile provided value file
+   * @return parsed value file
+   * @throws IOException this occurs in case of file reading issues
+   */
+  private JsonNode readValueFile(File valueFile) throws IOException {
+    File key = valueFile.getCanonicalFile();
+
+    if (!sharedValueFiles.contains(key)) {
+      getLog().debug(String.format("Parsing value file '%s'.", valueFile));
+      return mapper.readTree(valueFile);
+    }
+
+    synchronized (parsedValueFiles) {
+      JsonNode values = parsedValueFiles.get(key);
+
+      if (values == null) {
+        getLog()
+            .debug(String.format("Parsing shared value file '%s'.", valueFile));
+        values = mapper.readTree(valueFile);
+        parsedValueFiles.put(key, values);
+      }
+
+      return values;
+    }
+  }
+
+  /**
+   * Allows users locate external resource(s) like external templates to
+   * include/ extend/ import from local file system or from artifacts.
+   *
+   * @param jinjava Jinja context for Java
+   * @param resource A user defined resource
+   * @throws MojoExecutionException Exceptions occurred while creation of
+   *     locators are wrapped as `MojoExecutionException`.
+   */
+  private void addDependencyLocators(Jinjava jinjava, ResourceBean resource)
+      throws MojoExecutionException {
+    List<ResourceLocator> resourceLocatorsList = Lists.newArrayList();
+    resourceLocatorsList.add(new ClasspathResourceLocator());
+
+    for (File dir : resource.getDependencyDirs()) {
+      try {
+        resourceLocatorsList.add(new FileLocator(dir));
+      } catch (FileNotFoundException e) {
+        throw new MojoExecutionException(
+            "Error occurred while creating resource locator.", e);
+      }
+    }
+
+    for (String coordinates : resource.getDependencyArtifacts()) {
+      try {
+        resourceLocatorsList.add(getBundleCache().getBundle(coordinates));
+      } catch (IOException e) {
+        throw new MojoExecutionException(
+            "Error occurred while creating resource locator.", e);
+      }
+    }
+
+    ResourceLocator[] resourceLocators =
+        resourceLocatorsList.toArray(new ResourceLocator[0]);
+    jinjava.setResourceLocator(new CascadingResourceLocator(resourceLocators));
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin;
+
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.COMPILE_GOAL;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * {@link CompileJinjaTemplatesMojo}
+ *
+ * <p>This mojo validates all templates of the resource set, along with all
+ * files of their dependency directories, ahead of rendering.
+ *
+ * <p>Templates are lexed and parsed in parallel and all syntax errors are
+ * reported together. Successfully compiled templates are recorded in an index
+ * in the cache directory, keyed by the hash of their content, so that later
+ * runs of this goal restoring this directory skip checking unchanged templates.
+ */
+@Mojo(
+    name = "compile",
+    defaultPhase = LifecyclePhase.PROCESS_SOURCES,
+    threadSafe = true)
+public class CompileJinjaTemplatesMojo extends AbstractJinjaMojo {
+
+  @Override
+  protected String getGoal() {
+    return COMPILE_GOAL;
+  }
+
+  /**
+   * Compiles the templates of the resource set.
+   *
+   * @throws MojoExecutionException `IOException` are recorded if any.
+   * @throws MojoFailureException Syntax errors result in `MojoFailureException`
+   */
+  @Override
+  protected void executeGoal()
+      throws MojoExecutionException, MojoFailureException {
+    compileTemplates(true);
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin;
+
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.MAX_INCLUDE_DEPTH;
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.MAX_RENDER_DEPTH;
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.MAX_RENDER_TIME;
+
+import com.github.chitralverma.jinja.maven.plugin.TemplateCompiler.CompiledTemplate;
+import com.hubspot.jinjava.Jinjava;
+import com.hubspot.jinjava.JinjavaConfig;
+import com.hubspot.jinjava.interpret.Context;
+import com.hubspot.jinjava.interpret.InterpretException;
+import com.hubspot.jinjava.interpret.InterpreterFactory;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.tree.Node;
+import java.util.function.Supplier;
+
+/**
+ * {@link LimitedInterpreter}
+ *
+ * <p>Interpreter which fails the render once values or includes nest deeper
+ * than their limits, or once its thread is interrupted.
+ *
+ * <p>Jinjava renders values which themselves contain templates through {@link
+ * #renderFlat(String)} and only logs a warning when they nest deeper than the
+ * maximum render depth of the configuration, leaving the rest unrendered. This
+ * interpreter fails the render instead, once the template holding the values is
+ * rendered, as Jinjava drops exceptions of nested values. Included and imported
+ * templates are rendered through {@link #render(Node, boolean)} of this
+ * interpreter or of a child interpreter created by {@link Factory}, which
+ * carries the depth of includes over. Jinjava does not limit includes at all,
+ * which lets a faulty template recurse until the stack overflows.
+ *
+ * <p>Templates which are included, imported or extended are parsed through the
+ * {@link TemplateCompiler} of the execution, so each of them is parsed once per
+ * execution however many resources use it.
+ *
+ * <p>Jinjava never checks for interruption, so a render cancelled after
+ * exceeding its maximum render time would otherwise keep running in the
+ * background. The interrupt flag is checked before every expression is
+ * evaluated and every template is rendered, which stops loops and includes. A
+ * single long running filter or function call is not interrupted.
+ */
+public class LimitedInterpreter extends JinjavaInterpreter {
+
+  private final TemplateCompiler templateCompiler;
+  private final int maxIncludeDepth;
+  private int includeDepth;
+
+  /**
+   * Whether the next call of {@link #render(Node, boolean)} renders a value.
+   */
+  private boolean renderingValue;
+
+  private InterpretException valueDepthExceeded;
+
+  /**
+   * Creates an interpreter for a single render.
+   *
+   * @param application Jinjava to render with
+   * @param context context of the render
+   * @param config configuration of the render, its maximum render depth limits
+   *     the nesting of values
+   * @param templateCompiler compiler which parses the templates of the
+   *     execution
+   * @param maxIncludeDepth maximum depth of nested includes and imports, 0
+   *     disables the limit
+   */
+  public LimitedInterpreter(
+      Jinjava application,
+      Context context,
+      JinjavaConfig config,
+      TemplateCompiler templateCompiler,
+      int maxIncludeDepth) {
+    super(application, context, config);
+    this.templateCompiler = templateCompiler;
+    this.maxIncludeDepth = maxIncludeDepth;
+  }
+
+  /**
+   * Creates a child interpreter, like the ones rendering imported templates,
+   * which continues the includes of its parent.
+   *
+   * @param parent interpreter the child is created from
+   */
+  private LimitedInterpreter(LimitedInterpreter parent) {
+    super(parent);
+    this.templateCompiler = parent.templateCompiler;
+    this.maxIncludeDepth = parent.maxIncludeDepth;
+    this.includeDepth = parent.includeDepth;
+  }
+
+  /**
+   * Gets the parsed template from the compiler of the execution instead of
+   * parsing it again. Errors found while parsing it are reported to this
+   * interpreter, as if it was parsed here.
+   *
+   * @param template content of the template
+   * @return root node of the parsed template
+   */
+  @Override
+  public Node parse(String template) {
+    CompiledTemplate compiled = templateCompiler.getTemplate(template);
+    compiled.getErrors().forEach(this::addError);
+    return compiled.getRoot();
+  }
+
+  @Override
+  public Object resolveELExpression(String expression, int lineNumber) {
+    checkInterrupted();
+    return super.resolveELExpression(expression, lineNumber);
+  }
+
+  @Override
+  public String renderFlat(String template) {
+    int maxRenderDepth = getConfig().getMaxRenderDepth();
+    if (getContext().getRenderDepth() > maxRenderDepth) {
+      valueDepthExceeded =
+          new InterpretException(
+              String.format(
+                  "Nested values exceed limit %s=%d.",
+                  MAX_RENDER_DEPTH, maxRenderDepth));
+      throw valueDepthExceeded;
+    }
+
+    renderingValue = true;
+    try {
+      return super.renderFlat(template);
+    } finally {
+      renderingValue = false;
+    }
+  }
+
+  @Override
+  public String render(Node root, boolean processExtendRoots) {
+    checkInterrupted();
+
+    // Values are limited by their own depth, see renderFlat
+    if (renderingValue) {
+      renderingValue = false;
+      return super.render(root, processExtendRoots);
+    }
+
+    if (maxIncludeDepth > 0 && includeDepth > maxIncludeDepth) {
+      throw new InterpretException(
+          String.format(
+              "Nested includes exceed limit %s=%d.",
+              MAX_INCLUDE_DEPTH, maxIncludeDepth));
+    }
+
+    includeDepth++;
+    try {
+      String output = super.render(root, processExtendRoots);
+      if (valueDepthExceeded != null) {
+        throw valueDepthExceeded;
+      }
+
+      return output;
+    } finally {
+      includeDepth--;
+    }
+  }
+
+  private static void checkInterrupted() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterpretException(
+          String.format(
+              "Rendering was cancelled after exceeding limit %s.",
+              MAX_RENDER_TIME));
+    }
+  }
+
+  /**
+   * Creates limited interpreters for Jinjava, which creates a child interpreter
+   * for every imported template. Set on the Jinjava configuration, so imported
+   * templates are limited and parsed like included ones.
+   */
+  public static class Factory implements InterpreterFactory {
+
+    private final Supplier<TemplateCompiler> templateCompiler;
+    private final int maxIncludeDepth;
+
+    /**
+     * Creates a factory of limited interpreters.
+     *
+     * @param templateCompiler supplies the compiler of the execution once an
+     *     interpreter is created
+     * @param maxIncludeDepth maximum depth of nested includes and imports, 0
+     *     disables the limit
+     */
+    public Factory(
+        Supplier<TemplateCompiler> templateCompiler, int maxIncludeDepth) {
+      this.templateCompiler = templateCompiler;
+      this.maxIncludeDepth = maxIncludeDepth;
+    }
+
+    @Override
+    public JinjavaInterpreter newInstance(JinjavaInterpreter orig) {
+      if (orig instanceof LimitedInterpreter) {
+        return new LimitedInterpreter((LimitedInterpreter) orig);
+      }
+
+      return new JinjavaInterpreter(orig);
+    }
+
+    @Override
+    public JinjavaInterpreter newInstance(
+        Jinjava application, Context context, JinjavaConfig config) {
+      return new LimitedInterpreter(
+          application,
+          context,
+          config,
+          templateCompiler.get(),
+          maxIncludeDepth);
+    }
+  }
+}
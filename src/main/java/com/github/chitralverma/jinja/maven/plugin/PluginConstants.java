@@ -22,12 +22,32 @@ public final class PluginConstants {
   private PluginConstants() {}
 
   public static final String DEFAULT_PLUGIN_GOAL = "generate";
+  public static final String COMPILE_GOAL = "compile";
+  public static final String VERIFY_GOAL = "verify";
 
   public static final String SKIP = "jinja-maven.skip";
   public static final String RESOURCE_SET = "jinja-maven.resourceSet";
   public static final String FAIL_ON_MISSING_VALUES =
       "jinja-maven.failOnMissingValues";
   public static final String OVERWRITE_OUTPUT = "jinja-maven.overwriteOutput";
+  public static final String PURE_TEMPLATES = "jinja-maven.pureTemplates";
+  public static final String PURE_MACROS = "jinja-maven.pureMacros";
+  public static final String CACHE_DIRECTORY = "jinja-maven.cacheDirectory";
+  public static final String TEMPLATE_EXTENSIONS =
+      "jinja-maven.templateExtensions";
+  public static final String COMPILE_TEMPLATES = "jinja-maven.compileTemplates";
+  public static final String BUNDLE_CACHE_DIRECTORY =
+      "jinja-maven.bundleCacheDirectory";
+  public static final String THREADS = "jinja-maven.threads";
+  public static final String MAX_RENDER_TIME = "jinja-maven.maxRenderTime";
+  public static final String MAX_OUTPUT_SIZE = "jinja-maven.maxOutputSize";
+  public static final String MAX_RENDER_DEPTH = "jinja-maven.maxRenderDepth";
+  public static final String MAX_INCLUDE_DEPTH = "jinja-maven.maxIncludeDepth";
+  public static final String MAX_CONTEXT_SIZE = "jinja-maven.maxContextSize";
+
+  public static final String TEMPLATE_INDEX_FILE = "template-index.json";
+
+  public static final String ARTIFACT_PATH_SEPARATOR = "!/";
 
   public static final String MAVEN_PROPERTIES = "maven_properties";
 
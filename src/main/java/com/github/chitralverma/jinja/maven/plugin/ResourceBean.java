@@ -41,6 +41,12 @@ public class ResourceBean implements Serializable {
    */
   private List<File> valueFiles = new ArrayList<>();
 
+  /**
+   * Strategy used to merge multiple value files of this resource. Defaults to
+   * {@link ValueMergeStrategy#OVERRIDE}.
+   */
+  private ValueMergeStrategy valueMergeStrategy = ValueMergeStrategy.OVERRIDE;
+
   /**
    * Path to which output will be written after rendering. This path may or may
    * not exist and can be optionally overwritten.
@@ -53,6 +59,21 @@ public class ResourceBean implements Serializable {
    */
   private List<File> dependencyDirs = Lists.newLinkedList();
 
+  /**
+   * This is an optional field, and describes coordinates of one or more
+   * artifacts in the local repository which contain resources to be located.
+   * Coordinates are in the form
+   * groupId:artifactId[:extension[:classifier]]:version.
+   */
+  private List<String> dependencyArtifacts = Lists.newLinkedList();
+
+  /**
+   * This is an optional field, and describes one or more value files inside
+   * artifacts, in the form coordinates!/path/to/values.json. These are merged
+   * before the value files defined in `valueFiles`.
+   */
+  private List<String> artifactValueFiles = Lists.newLinkedList();
+
   public File getTemplateFilePath() {
     return templateFilePath;
   }
@@ -69,6 +90,14 @@ public class ResourceBean implements Serializable {
     this.valueFiles = valueFiles;
   }
 
+  public ValueMergeStrategy getValueMergeStrategy() {
+    return valueMergeStrategy;
+  }
+
+  public void setValueMergeStrategy(ValueMergeStrategy valueMergeStrategy) {
+    this.valueMergeStrategy = valueMergeStrategy;
+  }
+
   public File getOutputFilePath() {
     return outputFilePath;
   }
@@ -85,6 +114,22 @@ public class ResourceBean implements Serializable {
     this.dependencyDirs = dependencyDirs;
   }
 
+  public List<String> getDependencyArtifacts() {
+    return dependencyArtifacts;
+  }
+
+  public void setDependencyArtifacts(List<String> dependencyArtifacts) {
+    this.dependencyArtifacts = dependencyArtifacts;
+  }
+
+  public List<String> getArtifactValueFiles() {
+    return artifactValueFiles;
+  }
+
+  public void setArtifactValueFiles(List<String> artifactValueFiles) {
+    this.artifactValueFiles = artifactValueFiles;
+  }
+
   public boolean getIncludeMavenProperties() {
     return includeMavenProperties;
   }
@@ -102,10 +147,16 @@ public class ResourceBean implements Serializable {
         + templateFilePath
         + ", valueFiles="
         + valueFiles
+        + ", valueMergeStrategy="
+        + valueMergeStrategy
         + ", outputFilePath="
         + outputFilePath
         + ", dependencyDirs="
         + dependencyDirs
+        + ", dependencyArtifacts="
+        + dependencyArtifacts
+        + ", artifactValueFiles="
+        + artifactValueFiles
         + '}';
   }
 }
@@ -0,0 +1,353 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin;
+
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.ARTIFACT_PATH_SEPARATOR;
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.TEMPLATE_INDEX_FILE;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.chitralverma.jinja.maven.plugin.bundle.BundleCache;
+import com.github.chitralverma.jinja.maven.plugin.bundle.BundleResourceLocator;
+import com.google.common.hash.Hashing;
+import com.hubspot.jinjava.Jinjava;
+import com.hubspot.jinjava.interpret.Context;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.interpret.TemplateError;
+import com.hubspot.jinjava.tree.Node;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * {@link TemplateCompiler}
+ *
+ * <p>Lexes and parses templates of a resource set, including the files of its
+ * dependency directories and bundles which have a template extension, in
+ * parallel and collects their syntax errors.
+ *
+ * <p>Parsed templates are kept for the whole execution by the hash of their
+ * content, so every distinct template is parsed at most once per execution and
+ * its node tree is rendered for every resource using it. This includes the
+ * templates which are included, imported or extended while rendering, see
+ * {@link LimitedInterpreter#parse(String)}.
+ *
+ * <p>The compile goal also records templates which compile successfully in an
+ * index persisted in the cache directory, and its later runs skip checking
+ * unchanged templates found in this index. The node trees themselves are not
+ * persisted, as they hold the tag instances of the Jinjava which parsed them
+ * and can not be shared with a later build, so the index is not used when
+ * templates are compiled before rendering.
+ */
+public class TemplateCompiler {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final File indexFile;
+  private final Jinjava jinjava;
+  private final String[] templateExtensions;
+  private final BundleCache bundleCache;
+  private final Log log;
+
+  /** Parsed templates of this execution by the hash of their content. */
+  private final Map<String, CompiledTemplate> compiledTemplates =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a compiler which persists its index in the given directory.
+   *
+   * @param cacheDirectory directory in which the index is persisted
+   * @param jinjava Jinjava used for parsing, its tags are bound to the parsed
+   *     templates
+   * @param templateExtensions extensions of the files of dependency directories
+   *     and bundles which are compiled
+   * @param bundleCache cache of the bundles of dependency artifacts
+   * @param log logger of the plugin
+   */
+  public TemplateCompiler(
+      File cacheDirectory,
+      Jinjava jinjava,
+      List<String> templateExtensions,
+      BundleCache bundleCache,
+      Log log) {
+    this.indexFile = new File(cacheDirectory, TEMPLATE_INDEX_FILE);
+    this.jinjava = jinjava;
+    this.templateExtensions = templateExtensions.toArray(new String[0]);
+    this.bundleCache = bundleCache;
+    this.log = log;
+  }
+
+  /**
+   * Compiles all templates of the given resources.
+   *
+   * @param resources resources to compile templates of
+   * @param useIndex whether templates found in the persisted index are skipped
+   *     and the index is rewritten with the compiled templates
+   * @return syntax errors of all templates, empty if all templates compiled
+   * @throws IOException this occurs in case of file reading or writing issues
+   */
+  public List<String> compile(List<ResourceBean> resources, boolean useIndex)
+      throws IOException {
+    Map<File, String> templates = collectTemplates(resources);
+    Map<String, String> index = useIndex ? loadIndex() : Collections.emptyMap();
+    Map<String, String> compiled = new ConcurrentHashMap<>();
+    AtomicInteger indexed = new AtomicInteger();
+
+    log.info(String.format("Compiling %d template(s).", templates.size()));
+
+    List<String> errors;
+    try {
+      errors =
+          templates
+              .entrySet()
+              .parallelStream()
+              .flatMap(
+                  template -> {
+                    String content = readTemplate(template.getKey());
+                    String hash = hash(content);
+
+                    if (index.containsKey(hash)) {
+                      indexed.incrementAndGet();
+                      compiled.put(hash, template.getValue());
+                      return Collections.<String>emptyList().stream();
+                    }
+
+                    List<String> templateErrors =
+                        getErrors(
+                            template.getValue(), getTemplate(content, hash));
+                    if (templateErrors.isEmpty()) {
+                      compiled.put(hash, template.getValue());
+                    }
+
+                    return templateErrors.stream();
+                  })
+              .sorted()
+              .collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    if (useIndex) {
+      log.info(
+          String.format(
+              "Compiled %d template(s), %d unchanged template(s) "
+                  + "were found in index '%s'.",
+              templates.size() - indexed.get(), indexed.get(), indexFile));
+      saveIndex(compiled);
+    } else {
+      log.info(String.format("Compiled %d template(s).", templates.size()));
+    }
+
+    return errors;
+  }
+
+  /**
+   * Collects the templates of the resources and the files of their dependency
+   * directories and bundles which have one of the template extensions. Other
+   * files like value files, scripts or binaries found in these directories and
+   * bundles are skipped.
+   *
+   * @param resources resources to collect templates of
+   * @return distinct canonical template files mapped to the names they are
+   *     reported and indexed by, which is the path of the file or the
+   *     coordinates of the bundle along with the path in the bundle
+   * @throws IOException this occurs in case of file resolution issues or when a
+   *     bundle can not be resolved
+   */
+  private Map<File, String> collectTemplates(List<ResourceBean> resources)
+      throws IOException {
+    Map<File, String> templates = new LinkedHashMap<>();
+
+    for (ResourceBean resource : resources) {
+      File template = resource.getTemplateFilePath().getCanonicalFile();
+      templates.put(template, template.getPath());
+
+      for (File dir : resource.getDependencyDirs()) {
+        for (File file : FileUtils.listFiles(dir, templateExtensions, true)) {
+          templates.put(file.getCanonicalFile(), file.getCanonicalPath());
+        }
+      }
+
+      for (String coordinates : resource.getDependencyArtifacts()) {
+        BundleResourceLocator bundle = bundleCache.getBundle(coordinates);
+
+        for (String entry : bundle.getEntries()) {
+          if (FilenameUtils.isExtension(entry, templateExtensions)) {
+            templates.put(
+                bundle.getFile(entry).getCanonicalFile(),
+                coordinates + ARTIFACT_PATH_SEPARATOR + entry);
+          }
+        }
+      }
+    }
+
+    return templates;
+  }
+
+  /**
+   * Gets the parsed template for the given content, parsing it if it was not
+   * parsed before in this execution.
+   *
+   * @param content content of a template
+   * @return parsed template
+   */
+  public CompiledTemplate getTemplate(String content) {
+    return getTemplate(content, hash(content));
+  }
+
+  private CompiledTemplate getTemplate(String content, String hash) {
+    CompiledTemplate compiled = compiledTemplates.get(hash);
+
+    if (compiled == null) {
+      log.debug(String.format("Parsing template [ %s ].", hash));
+      compiled = parse(content);
+      CompiledTemplate existing = compiledTemplates.putIfAbsent(hash, compiled);
+      if (existing != null) {
+        compiled = existing;
+      }
+    }
+
+    return compiled;
+  }
+
+  /**
+   * Parses a template.
+   *
+   * @param content content of a template
+   * @return parsed template along with its errors
+   */
+  private CompiledTemplate parse(String content) {
+    // A plain interpreter parses the content instead of looking it up here
+    JinjavaInterpreter interpreter =
+        new JinjavaInterpreter(
+            jinjava,
+            new Context(jinjava.getGlobalContext()),
+            jinjava.getGlobalConfig());
+    JinjavaInterpreter.pushCurrent(interpreter);
+
+    try {
+      Node root = interpreter.parse(content);
+      return new CompiledTemplate(
+          root, new ArrayList<>(interpreter.getErrors()));
+    } finally {
+      JinjavaInterpreter.popCurrent();
+    }
+  }
+
+  /**
+   * Collects the syntax errors of a parsed template.
+   *
+   * @param template name of the template
+   * @param compiled parsed template
+   * @return syntax errors of the template
+   */
+  private static List<String> getErrors(
+      String template, CompiledTemplate compiled) {
+    List<String> errors = new ArrayList<>();
+    for (TemplateError error : compiled.getErrors()) {
+      if (error.getSeverity() == TemplateError.ErrorType.FATAL) {
+        errors.add(
+            String.format(
+                "%s:%d: %s", template, error.getLineno(), error.getMessage()));
+      }
+    }
+
+    return errors;
+  }
+
+  private static String readTemplate(File template) {
+    try {
+      return FileUtils.readFileToString(template, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String hash(String content) {
+    return Hashing.sha256()
+        .hashString(content, StandardCharsets.UTF_8)
+        .toString();
+  }
+
+  /**
+   * Loads the persisted index of compiled templates. An unreadable index is
+   * discarded and all templates are compiled again.
+   *
+   * @return content hashes of compiled templates mapped to their paths
+   */
+  private Map<String, String> loadIndex() {
+    if (indexFile.isFile()) {
+      try {
+        return mapper.readValue(
+            indexFile, new TypeReference<Map<String, String>>() {});
+      } catch (IOException e) {
+        log.warn(
+            String.format(
+                "Ignoring unreadable template index '%s'.", indexFile),
+            e);
+      }
+    }
+
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Persists the index of compiled templates. The index is rewritten with the
+   * current templates only, so entries of changed or removed templates are
+   * dropped and the index does not grow across builds.
+   *
+   * @param compiled content hashes of compiled templates mapped to their paths
+   * @throws IOException this occurs in case of file writing issues
+   */
+  private void saveIndex(Map<String, String> compiled) throws IOException {
+    FileUtils.forceMkdirParent(indexFile);
+    mapper.writeValue(indexFile, new TreeMap<>(compiled));
+  }
+
+  /** A parsed template along with the errors found while parsing it. */
+  public static final class CompiledTemplate {
+
+    private final Node root;
+    private final List<TemplateError> errors;
+
+    private CompiledTemplate(Node root, List<TemplateError> errors) {
+      this.root = root;
+      this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public Node getRoot() {
+      return root;
+    }
+
+    public List<TemplateError> getErrors() {
+      return errors;
+    }
+  }
+}
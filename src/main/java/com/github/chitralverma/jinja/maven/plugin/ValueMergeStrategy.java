@@ -0,0 +1,45 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin;
+
+/**
+ * {@link ValueMergeStrategy}
+ *
+ * <p>Describes how the values of multiple value files defined for a resource
+ * are combined into a single Jinja context. Value files are merged in the order
+ * in which they are defined, later files taking precedence.
+ */
+public enum ValueMergeStrategy {
+
+  /**
+   * Top level keys of a later value file replace the same keys of an earlier
+   * value file as a whole. This is the default behaviour.
+   */
+  OVERRIDE,
+
+  /**
+   * Nested objects are merged recursively and arrays of a later value file are
+   * appended to the arrays of an earlier value file.
+   */
+  APPEND,
+
+  /**
+   * Nested objects are merged recursively and arrays of a later value file
+   * replace the arrays of an earlier value file.
+   */
+  REPLACE_ARRAYS
+}
@@ -0,0 +1,229 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin;
+
+import static com.github.chitralverma.jinja.maven.plugin.PluginConstants.*;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * {@link VerifyJinjaTemplatesMojo}
+ *
+ * <p>This mojo checks that the outputs of the resource set are up to date
+ * without writing anything to the file system.
+ *
+ * <p>All resources are rendered in memory and in parallel. The hash of each
+ * rendered resource is compared with the hash of the existing file at its
+ * output file path, which is streamed from disk. The goal fails with a short
+ * summary of every missing or outdated output.
+ */
+@Mojo(name = "verify", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class VerifyJinjaTemplatesMojo extends AbstractJinjaMojo {
+
+  /** Maximum length of a line shown in the summary of an outdated output. */
+  private static final int MAX_SUMMARY_LINE_LENGTH = 80;
+
+  /**
+   * Configuration for number of resources rendered in parallel. Default: number
+   * of available processors
+   */
+  @Parameter(property = "jinja-maven.threads")
+  private final Integer threads = Runtime.getRuntime().availableProcessors();
+
+  @Override
+  protected String getGoal() {
+    return VERIFY_GOAL;
+  }
+
+  @Override
+  protected void addConfigs(ObjectNode configuration) {
+    configuration.set(THREADS, new POJONode(threads));
+  }
+
+  @Override
+  protected void validateResource(ResourceBean resource)
+      throws MojoFailureException {
+    super.validateResource(resource);
+
+    if (resource.getOutputFilePath() == null) {
+      throw new MojoFailureException(
+          ERROR_STATEMENT,
+          new IllegalArgumentException(
+              "'outputFilePath' path must not be null."));
+    }
+  }
+
+  /**
+   * Renders all resources in parallel and compares them with their outputs.
+   *
+   * @throws MojoExecutionException Rendering errors result in
+   *     `MojoExecutionException`
+   * @throws MojoFailureException Outdated outputs result in
+   *     `MojoFailureException`
+   */
+  @Override
+  protected void executeGoal()
+      throws MojoExecutionException, MojoFailureException {
+    getLog()
+        .info(
+            String.format(
+                "Verifying %d resource(s) using %d thread(s).",
+                resourceSet.size(), threads));
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.max(1, threads));
+    List<String> mismatches = new ArrayList<>();
+
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (ResourceBean resource : resourceSet) {
+        results.add(executor.submit(verifyResource(resource)));
+      }
+
+      for (Future<String> result : results) {
+        String mismatch = result.get();
+        if (mismatch != null) {
+          mismatches.add(mismatch);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException(
+          "Interrupted while verifying resources.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof MojoExecutionException) {
+        throw (MojoExecutionException) e.getCause();
+      }
+
+      throw new MojoExecutionException(
+          "Error occurred while verifying resources.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (!mismatches.isEmpty()) {
+      throw new MojoFailureException(
+          String.format(
+              "%d of %d resource output(s) are not up to date:%n%s",
+              mismatches.size(),
+              resourceSet.size(),
+              String.join(System.lineSeparator(), mismatches)));
+    }
+
+    getLog()
+        .info(
+            String.format(
+                "All %d resource output(s) are up to date.",
+                resourceSet.size()));
+  }
+
+  /**
+   * Creates a task which renders a resource and compares it with its output.
+   *
+   * @param resource A user defined resource
+   * @return task returning a summary of the mismatch, or null if up to date
+   */
+  private Callable<String> verifyResource(ResourceBean resource) {
+    return () -> {
+      getLog().debug(String.format("Verifying resource '%s'", resource));
+
+      File outputFile = resource.getOutputFilePath();
+      String rendered = renderFromResource(resource);
+
+      if (!outputFile.isFile()) {
+        return String.format("  %s: missing", outputFile);
+      }
+
+      byte[] renderedBytes = rendered.getBytes(StandardCharsets.UTF_8);
+      HashCode expected = Files.asByteSource(outputFile).hash(Hashing.sha256());
+      HashCode actual = Hashing.sha256().hashBytes(renderedBytes);
+
+      if (expected.equals(actual)) {
+        return null;
+      }
+
+      return String.format(
+          "  %s: differs (%d bytes on disk, %d bytes rendered), %s",
+          outputFile,
+          outputFile.length(),
+          renderedBytes.length,
+          describeFirstDifference(outputFile, rendered));
+    };
+  }
+
+  /**
+   * Describes the first line at which the output file and the rendered content
+   * differ. Both are read line by line, so only the lines up to the first
+   * difference are held in memory.
+   *
+   * @param outputFile existing output file
+   * @param rendered rendered content
+   * @return short description of the first difference
+   * @throws IOException this occurs in case of file reading issues
+   */
+  private static String describeFirstDifference(
+      File outputFile, String rendered) throws IOException {
+    try (BufferedReader existing =
+            Files.newReader(outputFile, StandardCharsets.UTF_8);
+        BufferedReader current =
+            new BufferedReader(new StringReader(rendered))) {
+      int lineNumber = 1;
+      while (true) {
+        String expected = existing.readLine();
+        String actual = current.readLine();
+
+        if (expected == null && actual == null) {
+          return "line endings differ";
+        }
+
+        if (expected == null || !expected.equals(actual)) {
+          return String.format(
+              "first difference at line %d: expected [%s] but rendered [%s]",
+              lineNumber,
+              StringUtils.abbreviate(
+                  String.valueOf(expected), MAX_SUMMARY_LINE_LENGTH),
+              StringUtils.abbreviate(
+                  String.valueOf(actual), MAX_SUMMARY_LINE_LENGTH));
+        }
+
+        lineNumber++;
+      }
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin.bundle;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * {@link BundleCache}
+ *
+ * <p>Resolves template and value bundles by their artifact coordinates from the
+ * local Maven repository.
+ *
+ * <p>Each bundle is extracted once into a directory named after the hash of the
+ * artifact content, along with an index of its entries. Later builds, and other
+ * projects sharing the same cache directory, reuse the extracted bundle and its
+ * index instead of extracting the artifact again.
+ *
+ * <p>Hashes are recorded in a small lookup per coordinates along with the size
+ * and modification time of the artifact, so an artifact is hashed again only
+ * when it changes in the local repository.
+ */
+public class BundleCache {
+
+  /** Name of the entry index written in every extracted bundle. */
+  public static final String BUNDLE_INDEX_FILE = ".bundle-index.json";
+
+  /** Name of the directory holding the artifact hash lookups. */
+  private static final String LOOKUP_DIRECTORY = ".lookup";
+
+  private static final String SIZE = "size";
+  private static final String LAST_MODIFIED = "lastModified";
+  private static final String HASH = "hash";
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final File cacheDirectory;
+  private final RepositorySystemSession session;
+  private final Log log;
+
+  private final Map<String, BundleResourceLocator> bundles =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a cache of bundles extracted in the given directory.
+   *
+   * @param cacheDirectory directory in which bundles are extracted
+   * @param session repository session used to locate artifacts
+   * @param log logger of the plugin
+   */
+  public BundleCache(
+      File cacheDirectory, RepositorySystemSession session, Log log) {
+    this.cacheDirectory = cacheDirectory;
+    this.session = session;
+    this.log = log;
+  }
+
+  /**
+   * Gets a bundle by its artifact coordinates, extracting it if required.
+   *
+   * @param coordinates artifact coordinates in the form
+   *     groupId:artifactId[:extension[:classifier]]:version
+   * @return locator of the extracted bundle
+   * @throws IOException this occurs when the artifact is missing from the local
+   *     repository or can not be extracted
+   */
+  public synchronized BundleResourceLocator getBundle(String coordinates)
+      throws IOException {
+    BundleResourceLocator bundle = bundles.get(coordinates);
+
+    if (bundle == null) {
+      bundle = loadBundle(coordinates);
+      bundles.put(coordinates, bundle);
+    }
+
+    return bundle;
+  }
+
+  private BundleResourceLocator loadBundle(String coordinates)
+      throws IOException {
+    File artifactFile = resolveArtifact(coordinates);
+    String hash = getArtifactHash(coordinates, artifactFile);
+    File bundleDir = new File(cacheDirectory, hash);
+    File indexFile = new File(bundleDir, BUNDLE_INDEX_FILE);
+
+    if (!indexFile.isFile()) {
+      log.info(
+          String.format(
+              "Extracting bundle '%s' to '%s'.", coordinates, bundleDir));
+      extract(artifactFile, bundleDir);
+    } else {
+      log.debug(
+          String.format(
+              "Reusing bundle '%s' extracted at '%s'.",
+              coordinates, bundleDir));
+    }
+
+    Set<String> entries =
+        mapper.readValue(indexFile, new TypeReference<TreeSet<String>>() {});
+    return new BundleResourceLocator(coordinates, bundleDir, entries);
+  }
+
+  /**
+   * Gets the hash of the content of an artifact. The hash recorded in the
+   * lookup of the coordinates is used as long as the size and modification time
+   * of the artifact match the recorded ones, otherwise the artifact is hashed
+   * and the lookup is rewritten.
+   *
+   * @param coordinates artifact coordinates
+   * @param artifactFile artifact file
+   * @return hash of the artifact content
+   * @throws IOException this occurs in case of file reading or writing issues
+   */
+  private String getArtifactHash(String coordinates, File artifactFile)
+      throws IOException {
+    File lookupFile =
+        new File(
+            new File(cacheDirectory, LOOKUP_DIRECTORY),
+            Hashing.sha256().hashString(coordinates, StandardCharsets.UTF_8)
+                + ".json");
+    long size = artifactFile.length();
+    long lastModified = artifactFile.lastModified();
+
+    if (lookupFile.isFile()) {
+      try {
+        JsonNode lookup = mapper.readTree(lookupFile);
+
+        if (lookup.path(SIZE).asLong(-1) == size
+            && lookup.path(LAST_MODIFIED).asLong(-1) == lastModified
+            && lookup.hasNonNull(HASH)) {
+          return lookup.get(HASH).asText();
+        }
+      } catch (IOException e) {
+        log.debug(
+            String.format("Ignoring unreadable lookup '%s'.", lookupFile), e);
+      }
+    }
+
+    log.debug(String.format("Hashing bundle '%s'.", artifactFile));
+    String hash =
+        Files.asByteSource(artifactFile).hash(Hashing.sha256()).toString();
+
+    ObjectNode lookup = mapper.createObjectNode();
+    lookup.put(SIZE, size);
+    lookup.put(LAST_MODIFIED, lastModified);
+    lookup.put(HASH, hash);
+    FileUtils.forceMkdirParent(lookupFile);
+    mapper.writeValue(lookupFile, lookup);
+
+    return hash;
+  }
+
+  /**
+   * Locates an artifact in the local repository.
+   *
+   * @param coordinates artifact coordinates
+   * @return artifact file
+   * @throws IOException this occurs when the coordinates are invalid or the
+   *     artifact is not available in the local repository
+   */
+  private File resolveArtifact(String coordinates) throws IOException {
+    Artifact artifact;
+    try {
+      artifact = new DefaultArtifact(coordinates.trim());
+    } catch (IllegalArgumentException e) {
+      throw new IOException(
+          String.format("Invalid bundle coordinates '%s'.", coordinates), e);
+    }
+
+    String path =
+        session.getLocalRepositoryManager().getPathForLocalArtifact(artifact);
+    File artifactFile =
+        new File(session.getLocalRepository().getBasedir(), path);
+
+    if (!artifactFile.isFile()) {
+      throw new FileNotFoundException(
+          String.format(
+              "Bundle '%s' was not found in the local repository at '%s'. "
+                  + "Add it as a dependency or fetch it with "
+                  + "dependency:get before using it.",
+              coordinates, artifactFile));
+    }
+
+    return artifactFile;
+  }
+
+  /**
+   * Extracts an artifact to a temporary directory along with its entry index
+   * and then moves it to the bundle directory, so that a bundle directory with
+   * an index is always complete.
+   *
+   * @param artifactFile artifact to extract
+   * @param bundleDir directory to extract to
+   * @throws IOException this occurs in case of file reading or writing issues
+   */
+  private void extract(File artifactFile, File bundleDir) throws IOException {
+    File tempDir =
+        new File(cacheDirectory, bundleDir.getName() + "-" + UUID.randomUUID());
+    String tempPath = tempDir.getCanonicalPath() + File.separator;
+    Set<String> entries = new TreeSet<>();
+    FileUtils.forceMkdir(tempDir);
+
+    try (ZipFile zip = new ZipFile(artifactFile)) {
+      Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+
+      while (zipEntries.hasMoreElements()) {
+        ZipEntry entry = zipEntries.nextElement();
+        File target = new File(tempDir, entry.getName());
+
+        if (!target.getCanonicalPath().startsWith(tempPath)) {
+          throw new IOException(
+              String.format(
+                  "Entry '%s' of '%s' is outside of the bundle.",
+                  entry.getName(), artifactFile));
+        }
+
+        if (!entry.isDirectory()) {
+          try (InputStream in = zip.getInputStream(entry)) {
+            FileUtils.copyInputStreamToFile(in, target);
+          }
+          entries.add(entry.getName());
+        }
+      }
+
+      mapper.writeValue(new File(tempDir, BUNDLE_INDEX_FILE), entries);
+
+      // A failed rename is fine if another build extracted it concurrently.
+      if (!tempDir.renameTo(bundleDir)
+          && !new File(bundleDir, BUNDLE_INDEX_FILE).isFile()) {
+        throw new IOException(
+            String.format(
+                "Unable to move extracted bundle '%s' to '%s'.",
+                artifactFile, bundleDir));
+      }
+    } finally {
+      FileUtils.deleteQuietly(tempDir);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin.bundle;
+
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.loader.ResourceLocator;
+import com.hubspot.jinjava.loader.ResourceNotFoundException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * {@link BundleResourceLocator}
+ *
+ * <p>Locates resources in a bundle extracted by {@link BundleCache}. Lookups
+ * are answered from the entry index of the bundle, so resources which are not
+ * part of the bundle are rejected without touching the file system.
+ */
+public class BundleResourceLocator implements ResourceLocator {
+
+  private final String coordinates;
+  private final File root;
+  private final Set<String> entries;
+
+  /**
+   * Creates a locator for an extracted bundle.
+   *
+   * @param coordinates artifact coordinates of the bundle
+   * @param root directory in which the bundle is extracted
+   * @param entries relative paths of all files in the bundle
+   */
+  public BundleResourceLocator(
+      String coordinates, File root, Set<String> entries) {
+    this.coordinates = coordinates;
+    this.root = root;
+    this.entries = entries;
+  }
+
+  @Override
+  public String getString(
+      String fullName, Charset encoding, JinjavaInterpreter interpreter)
+      throws IOException {
+    return FileUtils.readFileToString(getFile(fullName), encoding);
+  }
+
+  /**
+   * Resolves a file of the bundle.
+   *
+   * @param name relative path of the file in the bundle
+   * @return extracted file
+   * @throws ResourceNotFoundException this occurs when the bundle does not
+   *     contain the file
+   */
+  public File getFile(String name) throws ResourceNotFoundException {
+    String entry = StringUtils.removeStart(name, "/");
+
+    if (!entries.contains(entry)) {
+      throw new ResourceNotFoundException(
+          String.format(
+              "Couldn't find resource '%s' in bundle '%s'.",
+              name, coordinates));
+    }
+
+    return new File(root, entry);
+  }
+
+  public String getCoordinates() {
+    return coordinates;
+  }
+
+  public Set<String> getEntries() {
+    return entries;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin.tags;
+
+import com.github.chitralverma.jinja.maven.plugin.utils.ContextHashUtils;
+import com.hubspot.jinjava.interpret.Context;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.lib.tag.IncludeTag;
+import com.hubspot.jinjava.tree.TagNode;
+import com.hubspot.jinjava.util.HelperStringTokenizer;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * {@link PureIncludeTag}
+ *
+ * <p>Replaces the default Jinja <code>include</code> tag to memoize the
+ * rendered output of includes which are marked as pure by the user.
+ *
+ * <p>A pure include is one whose output depends only on its own content and on
+ * the context variables it reads. Its rendered output is cached with a key made
+ * of the hash of the template content and the hash of the values read by it,
+ * see {@link ContextHashUtils}, so identical fragments render only once per
+ * build and are spliced into every resource that includes them.
+ *
+ * <p>Includes which are not marked as pure, which fail to render cleanly, which
+ * call macros or which include, import or extend other templates are always
+ * rendered by the default <code>include</code> tag. So are includes which set
+ * variables or define macros, as these change the context of the including
+ * template and the change would be lost when the cached output is reused.
+ * Macros can be memoized on their own with {@link PureMacroTag}.
+ */
+public class PureIncludeTag extends IncludeTag {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Pattern NOT_MEMOIZABLE_PATTERN =
+      Pattern.compile(
+          "\\{%-?\\s*(include|import|from|extends|set|macro|do)\\s");
+
+  private final transient Set<String> pureTemplates;
+  private final transient Map<String, String> renderCache;
+  private final transient Log log;
+
+  /**
+   * Creates an include tag which memoizes the output of pure templates.
+   *
+   * @param pureTemplates names of templates marked as pure, as referenced in
+   *     the include tags
+   * @param renderCache cache of rendered output shared across resources
+   * @param log logger of the plugin
+   */
+  public PureIncludeTag(
+      Set<String> pureTemplates, Map<String, String> renderCache, Log log) {
+    this.pureTemplates = pureTemplates;
+    this.renderCache = renderCache;
+    this.log = log;
+  }
+
+  @Override
+  public String interpret(TagNode tagNode, JinjavaInterpreter interpreter) {
+    String cacheKey = getCacheKey(tagNode, interpreter);
+    if (cacheKey == null) {
+      return super.interpret(tagNode, interpreter);
+    }
+
+    String cached = renderCache.get(cacheKey);
+    if (cached != null) {
+      log.debug(String.format("Reusing rendered include [ %s ].", cacheKey));
+      return cached;
+    }
+
+    int errorCount = interpreter.getErrors().size();
+    String rendered = super.interpret(tagNode, interpreter);
+
+    if (interpreter.getErrors().size() == errorCount) {
+      renderCache.put(cacheKey, rendered);
+    }
+
+    return rendered;
+  }
+
+  /**
+   * Builds the cache key for an include if it is marked as pure.
+   *
+   * @param tagNode include tag node
+   * @param interpreter current interpreter
+   * @return cache key or null if the include must not be memoized
+   */
+  private String getCacheKey(TagNode tagNode, JinjavaInterpreter interpreter) {
+    List<String> helper =
+        new HelperStringTokenizer(tagNode.getHelpers()).allTokens();
+    if (pureTemplates.isEmpty() || helper.isEmpty()) {
+      return null;
+    }
+
+    String templateFile =
+        interpreter.resolveString(
+            StringUtils.trimToEmpty(helper.get(0)),
+            tagNode.getLineNumber(),
+            tagNode.getStartPosition());
+
+    if (!pureTemplates.contains(templateFile)) {
+      return null;
+    }
+
+    try {
+      String template =
+          interpreter.getResource(
+              interpreter.resolveResourceLocation(templateFile));
+
+      Matcher notMemoizable = NOT_MEMOIZABLE_PATTERN.matcher(template);
+      if (notMemoizable.find()) {
+        log.debug(
+            String.format(
+                "Pure include '%s' uses '%s' tags and will not be memoized.",
+                templateFile, notMemoizable.group(1)));
+        return null;
+      }
+
+      Context context = interpreter.getContext();
+      String values =
+          ContextHashUtils.hashReadValues(
+              template,
+              name -> {
+                Object value = context.get(name);
+                return value != null ? value : context.getGlobalMacro(name);
+              },
+              Collections.emptySet());
+
+      if (values == null) {
+        log.debug(
+            String.format(
+                "Pure include '%s' calls macros and will not be memoized.",
+                templateFile));
+        return null;
+      }
+
+      return ContextHashUtils.sha256(template) + ":" + values;
+    } catch (IOException e) {
+      // Let the default include tag report the missing template.
+      return null;
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin.tags;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.chitralverma.jinja.maven.plugin.utils.ContextHashUtils;
+import com.google.common.collect.Sets;
+import com.hubspot.jinjava.interpret.Context;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.lib.fn.MacroFunction;
+import com.hubspot.jinjava.lib.tag.MacroTag;
+import com.hubspot.jinjava.tree.TagNode;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * {@link PureMacroTag}
+ *
+ * <p>Replaces the default Jinja <code>macro</code> tag to memoize the rendered
+ * output of calls to macros which are marked as pure by the user.
+ *
+ * <p>Macros are defined as usual and then registered again as a {@link
+ * PureMacroFunction}, which renders the same body. A call of a pure macro is
+ * cached with a key made of the hash of the macro definition, the hash of its
+ * arguments and the hash of the context values read by its body, see {@link
+ * ContextHashUtils}, so identical calls render only once per build.
+ *
+ * <p>Macros which call other macros, use <code>caller()</code> or which
+ * include, import or change other templates or values are always rendered. So
+ * are calls which fail to render cleanly or whose arguments can not be
+ * serialized.
+ */
+public class PureMacroTag extends MacroTag {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Pattern NOT_MEMOIZABLE_PATTERN =
+      Pattern.compile(
+          "\\{%-?\\s*(include|import|from|extends|macro|call|do)\\s"
+              + "|\\b(caller)\\s*\\(");
+
+  /**
+   * Names defined inside the body of every macro, besides its arguments and its
+   * own name.
+   */
+  private static final Set<String> MACRO_LOCAL_NAMES =
+      Sets.newHashSet("kwargs", "varargs", "caller", "loop");
+
+  private final transient Set<String> pureMacros;
+  private final transient Map<String, String> renderCache;
+  private final transient Log log;
+
+  /**
+   * Creates a macro tag which memoizes the calls of pure macros.
+   *
+   * @param pureMacros names of macros marked as pure, as defined in the macro
+   *     tags
+   * @param renderCache cache of rendered output shared across resources
+   * @param log logger of the plugin
+   */
+  public PureMacroTag(
+      Set<String> pureMacros, Map<String, String> renderCache, Log log) {
+    this.pureMacros = pureMacros;
+    this.renderCache = renderCache;
+    this.log = log;
+  }
+
+  @Override
+  public String interpret(TagNode tagNode, JinjavaInterpreter interpreter) {
+    String output = super.interpret(tagNode, interpreter);
+    String name = StringUtils.substringBefore(tagNode.getHelpers(), "(").trim();
+
+    if (pureMacros.contains(name)) {
+      Context context = interpreter.getContext();
+      MacroFunction macro = context.getGlobalMacros().get(name);
+
+      if (macro != null && !macro.isDeferred()) {
+        context.addGlobalMacro(new PureMacroFunction(macro, tagNode, context));
+      }
+    }
+
+    return output;
+  }
+
+  /**
+   * Macro function which renders the body of a pure macro like the one defined
+   * by the default <code>macro</code> tag, and memoizes its calls.
+   */
+  private class PureMacroFunction extends MacroFunction {
+
+    private final Context definitionContext;
+    private final Set<String> localNames;
+    private final String definition;
+    private final String definitionHash;
+
+    private PureMacroFunction(
+        MacroFunction macro, TagNode tagNode, Context definitionContext) {
+      super(
+          tagNode.getChildren(),
+          macro.getName(),
+          getArgNamesWithDefaults(macro),
+          macro.isCaller(),
+          definitionContext,
+          tagNode.getLineNumber(),
+          tagNode.getStartPosition());
+      this.definitionContext = definitionContext;
+      this.localNames = Sets.newHashSet(macro.getArguments());
+      this.localNames.addAll(MACRO_LOCAL_NAMES);
+      this.localNames.add(macro.getName());
+
+      // The definition starts with the macro tag, which is left out of checks
+      this.definition = reconstructImage();
+      Matcher notMemoizable =
+          NOT_MEMOIZABLE_PATTERN.matcher(
+              StringUtils.substringAfter(definition, "%}"));
+      if (notMemoizable.find()) {
+        log.debug(
+            String.format(
+                "Pure macro '%s' uses '%s' and will not be memoized.",
+                getName(),
+                StringUtils.defaultIfEmpty(
+                    notMemoizable.group(1), notMemoizable.group(2))));
+        this.definitionHash = null;
+      } else {
+        this.definitionHash = ContextHashUtils.sha256(definition);
+      }
+    }
+
+    @Override
+    public Object doEvaluate(
+        Map<String, Object> argMap,
+        Map<String, Object> kwargMap,
+        List<Object> varArgs) {
+      JinjavaInterpreter interpreter = JinjavaInterpreter.getCurrent();
+      String cacheKey = getCacheKey(interpreter, argMap, kwargMap, varArgs);
+      if (cacheKey == null) {
+        return super.doEvaluate(argMap, kwargMap, varArgs);
+      }
+
+      String cached = renderCache.get(cacheKey);
+      if (cached != null) {
+        log.debug(
+            String.format("Reusing rendered macro call [ %s ].", cacheKey));
+        return cached;
+      }
+
+      int errorCount = interpreter.getErrors().size();
+      Object rendered = super.doEvaluate(argMap, kwargMap, varArgs);
+
+      if (rendered instanceof String
+          && interpreter.getErrors().size() == errorCount) {
+        renderCache.put(cacheKey, (String) rendered);
+      }
+
+      return rendered;
+    }
+
+    /**
+     * Builds the cache key for a call of this macro. The body of a macro reads
+     * the values of the scope it was defined in first and then the ones of the
+     * scope it is called from, so values are looked up in the same order.
+     *
+     * @param interpreter current interpreter
+     * @param argMap named arguments of the call
+     * @param kwargMap extra keyword arguments of the call
+     * @param varArgs extra positional arguments of the call
+     * @return cache key or null if the call must not be memoized
+     */
+    private String getCacheKey(
+        JinjavaInterpreter interpreter,
+        Map<String, Object> argMap,
+        Map<String, Object> kwargMap,
+        List<Object> varArgs) {
+      if (definitionHash == null || interpreter == null) {
+        return null;
+      }
+
+      Context context = interpreter.getContext();
+      try {
+        String values =
+            ContextHashUtils.hashReadValues(
+                definition,
+                name -> {
+                  Object value = definitionContext.getScope().get(name);
+                  if (value == null) {
+                    value = context.get(name);
+                  }
+
+                  return value != null ? value : context.getGlobalMacro(name);
+                },
+                localNames);
+
+        if (values == null) {
+          return null;
+        }
+
+        return definitionHash
+            + ":"
+            + ContextHashUtils.sha256(Arrays.asList(argMap, kwargMap, varArgs))
+            + ":"
+            + values;
+      } catch (JsonProcessingException e) {
+        return null;
+      }
+    }
+  }
+
+  private static LinkedHashMap<String, Object> getArgNamesWithDefaults(
+      MacroFunction macro) {
+    LinkedHashMap<String, Object> argNamesWithDefaults = new LinkedHashMap<>();
+    for (String argument : macro.getArguments()) {
+      argNamesWithDefaults.put(argument, macro.getDefaults().get(argument));
+    }
+
+    return argNamesWithDefaults;
+  }
+}
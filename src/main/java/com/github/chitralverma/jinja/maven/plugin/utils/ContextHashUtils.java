@@ -0,0 +1,172 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import com.hubspot.jinjava.lib.fn.MacroFunction;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hashes the context values read by a template fragment, so that the rendered
+ * output of pure includes and macros can be cached by the values it depends on.
+ *
+ * <p>The values are found at the variable paths referenced in the expressions
+ * and tags of the fragment, like <code>maven_properties.version</code>. Only
+ * the values at those paths are hashed, not the whole variables they start
+ * from. Values are hashed again on every call, as lists and maps of the context
+ * may be changed between two renders of the same fragment.
+ */
+public class ContextHashUtils {
+
+  private ContextHashUtils() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private static final Pattern EXPRESSION_PATTERN =
+      Pattern.compile("\\{\\{(.*?)}}|\\{%(.*?)%}", Pattern.DOTALL);
+
+  private static final Pattern VARIABLE_PATH_PATTERN =
+      Pattern.compile(
+          "[A-Za-z_][A-Za-z0-9_]*(?:\\.[A-Za-z_][A-Za-z0-9_]*"
+              + "|\\[\\s*(?:'[^']*'|\"[^\"]*\")\\s*])*");
+
+  private static final Pattern PATH_SEGMENT_PATTERN =
+      Pattern.compile("[A-Za-z_][A-Za-z0-9_]*|'([^']*)'|\"([^\"]*)\"");
+
+  public static String sha256(String content) {
+    return Hashing.sha256()
+        .hashString(content, StandardCharsets.UTF_8)
+        .toString();
+  }
+
+  /**
+   * Hashes a value as serialized by Jackson.
+   *
+   * @param value value to hash
+   * @return hash of the serialized value
+   * @throws JsonProcessingException this occurs when the value can not be
+   *     serialized
+   */
+  public static String sha256(Object value) throws JsonProcessingException {
+    return Hashing.sha256()
+        .hashBytes(mapper.writeValueAsBytes(value))
+        .toString();
+  }
+
+  /**
+   * Hashes the values at all variable paths referenced in a fragment. Names
+   * which are not variables (filters, tests, keywords) do not resolve and are
+   * skipped. Fragments which call macros are not hashed, since the output of a
+   * macro depends on values which are not referenced in the fragment itself.
+   *
+   * @param template content of the fragment
+   * @param lookup resolves a top level name to its value or macro, null if the
+   *     name is not defined
+   * @param localNames names defined by the fragment itself, which are skipped
+   * @return hash of the values read by the fragment, or null if it calls macros
+   * @throws JsonProcessingException this occurs when a value can not be
+   *     serialized, such fragments are not memoized
+   */
+  public static String hashReadValues(
+      String template, Function<String, Object> lookup, Set<String> localNames)
+      throws JsonProcessingException {
+    Set<String> paths = new TreeSet<>();
+    Matcher expressions = EXPRESSION_PATTERN.matcher(template);
+
+    while (expressions.find()) {
+      String expression =
+          expressions.group(1) != null
+              ? expressions.group(1)
+              : expressions.group(2);
+
+      Matcher path = VARIABLE_PATH_PATTERN.matcher(expression);
+      while (path.find()) {
+        paths.add(path.group());
+      }
+    }
+
+    StringBuilder values = new StringBuilder();
+    for (String path : paths) {
+      Object value = resolvePath(path, lookup, localNames);
+      if (value instanceof MacroFunction) {
+        return null;
+      }
+
+      if (value != null) {
+        values.append(path).append('=').append(sha256(value)).append('\n');
+      }
+    }
+
+    return sha256(values.toString());
+  }
+
+  /**
+   * Resolves a variable path like <code>a.b['c']</code>. The path is followed
+   * through maps and JSON objects for as long as it resolves, and the deepest
+   * value found is returned. So for attributes which can not be followed, like
+   * method calls, the value they are read from is hashed as a whole.
+   *
+   * @param path variable path
+   * @param lookup resolves a top level name to its value or macro
+   * @param localNames names which are skipped
+   * @return deepest value found on the path, or null if the variable does not
+   *     exist
+   */
+  private static Object resolvePath(
+      String path, Function<String, Object> lookup, Set<String> localNames) {
+    Matcher segments = PATH_SEGMENT_PATTERN.matcher(path);
+    if (!segments.find() || localNames.contains(segments.group())) {
+      return null;
+    }
+
+    Object value = lookup.apply(segments.group());
+    while (value != null && segments.find()) {
+      String segment = segments.group();
+      if (segments.group(1) != null) {
+        segment = segments.group(1);
+      } else if (segments.group(2) != null) {
+        segment = segments.group(2);
+      }
+
+      Object next = null;
+      if (value instanceof Map) {
+        next = ((Map<?, ?>) value).get(segment);
+      } else if (value instanceof JsonNode) {
+        next = ((JsonNode) value).get(segment);
+      }
+
+      if (next == null) {
+        break;
+      }
+
+      value = next;
+    }
+
+    return value;
+  }
+}
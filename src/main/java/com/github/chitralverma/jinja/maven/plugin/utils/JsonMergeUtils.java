@@ -0,0 +1,96 @@
+/*
+ *    Copyright 2021 Chitral Verma
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.github.chitralverma.jinja.maven.plugin.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.chitralverma.jinja.maven.plugin.ValueMergeStrategy;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Merges parsed value files as per a {@link ValueMergeStrategy}.
+ *
+ * <p>Merging never mutates its inputs. Only the nodes present on the path of a
+ * conflicting key are created afresh, all other subtrees are shared by
+ * reference with the inputs. This allows trees of common value files to be
+ * parsed once and reused across resources without being copied.
+ */
+public class JsonMergeUtils {
+
+  private JsonMergeUtils() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  private static final JsonNodeFactory factory = JsonNodeFactory.instance;
+
+  /**
+   * Merges the overlay node on top of the base node.
+   *
+   * @param base node from an earlier value file, may be null
+   * @param overlay node from a later value file
+   * @param strategy strategy to resolve conflicting keys
+   * @return merged node which shares unchanged subtrees with the inputs
+   */
+  public static JsonNode merge(
+      JsonNode base, JsonNode overlay, ValueMergeStrategy strategy) {
+    if (base == null || overlay == null) {
+      return overlay == null ? base : overlay;
+    }
+
+    if (base.isObject() && overlay.isObject()) {
+      return mergeObjects((ObjectNode) base, (ObjectNode) overlay, strategy);
+    }
+
+    if (base.isArray()
+        && overlay.isArray()
+        && strategy == ValueMergeStrategy.APPEND) {
+      ArrayNode merged = factory.arrayNode();
+      base.forEach(merged::add);
+      overlay.forEach(merged::add);
+      return merged;
+    }
+
+    return overlay;
+  }
+
+  private static JsonNode mergeObjects(
+      ObjectNode base, ObjectNode overlay, ValueMergeStrategy strategy) {
+    if (base.size() == 0) {
+      return overlay;
+    }
+
+    ObjectNode merged = factory.objectNode();
+    merged.setAll(base);
+
+    Iterator<Map.Entry<String, JsonNode>> iter = overlay.fields();
+    while (iter.hasNext()) {
+      Map.Entry<String, JsonNode> next = iter.next();
+      String key = next.getKey();
+
+      if (strategy == ValueMergeStrategy.OVERRIDE) {
+        merged.set(key, next.getValue());
+      } else {
+        merged.set(key, merge(base.get(key), next.getValue(), strategy));
+      }
+    }
+
+    return merged;
+  }
+}